@@ -2,11 +2,13 @@ package de.amberhome.locale;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
-import android.text.format.DateFormat;
 import anywheresoftware.b4a.BA;
 import anywheresoftware.b4a.BA.ShortName;
 
@@ -23,12 +25,47 @@ import anywheresoftware.b4a.BA.ShortName;
 public class AHDateTime {
 	private SimpleDateFormat sdf;
 	private String pattern = "yyyy-MM-dd HH:mm:ss";
+	private Locale locale;
+	// Resolved on first use while AHLocaleMetrics is enabled
+	private AHLocaleMetrics.Metric formatMetric;
+	private AHLocaleMetrics.Metric parseMetric;
 
 	public final int DEFAULT = SimpleDateFormat.DEFAULT;
 	public final int SHORT = SimpleDateFormat.SHORT;
 	public final int MEDIUM = SimpleDateFormat.MEDIUM;
 	public final int LONG = SimpleDateFormat.LONG;
 	public final int FULL = SimpleDateFormat.FULL;
+
+	static final int NO_STYLE = -1;
+
+	// "dateStyle|timeStyle|locale" -> pattern
+	private static final ConcurrentHashMap<String, String> patternCache = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Returns the default pattern for the given styles and locale. Pass NO_STYLE
+	 * for dateStyle or timeStyle to get a time or date only pattern.
+	 */
+	static String defaultPattern(int dateStyle, int timeStyle, Locale loc) {
+		String key = dateStyle + "|" + timeStyle + "|" + loc;
+		String pattern = patternCache.get(key);
+		if (pattern == null) {
+			SimpleDateFormat sf;
+			if (timeStyle == NO_STYLE) {
+				sf = (SimpleDateFormat) SimpleDateFormat.getDateInstance(dateStyle, loc);
+			} else if (dateStyle == NO_STYLE) {
+				sf = (SimpleDateFormat) SimpleDateFormat.getTimeInstance(timeStyle, loc);
+			} else {
+				sf = (SimpleDateFormat) SimpleDateFormat.getDateTimeInstance(dateStyle, timeStyle, loc);
+			}
+			pattern = sf.toPattern();
+			patternCache.put(key, pattern);
+		}
+		return pattern;
+	}
+
+	static void preloadPattern(int dateStyle, int timeStyle, Locale loc, String pattern) {
+		patternCache.put(dateStyle + "|" + timeStyle + "|" + loc, pattern);
+	}
 	
 	public AHDateTime() {
 	}
@@ -37,24 +74,58 @@ public class AHDateTime {
 	 * Initializes the AHDateTime object with the default locale.
 	 */
 	public void Initialize() {
+		long start = System.nanoTime();
 		sdf = new SimpleDateFormat();
-		sdf.setTimeZone(TimeZone.getDefault());
+		applyZone(AHTimezone.defaultZone());
+		initialized(Locale.getDefault(), start);
 	}
 
 	/**
 	 * Initializes the AHDateTime object with the given AHLocale object
 	 */
 	public void Initialize2(AHLocale locale) {
+		long start = System.nanoTime();
 		sdf = new SimpleDateFormat(this.pattern, locale.myLocale);
-		sdf.setTimeZone(TimeZone.getDefault());
+		applyZone(AHTimezone.defaultZone());
+		initialized(locale.myLocale, start);
 	}
 
 	/**
 	 * Initializes the AHDateTime object with the <strong>en_US</strong> locale.
 	 */
 	public void InitializeUS() {
+		long start = System.nanoTime();
 		sdf = new SimpleDateFormat(this.pattern, Locale.US);
-		sdf.setTimeZone(TimeZone.getDefault());
+		applyZone(AHTimezone.defaultZone());
+		initialized(Locale.US, start);
+	}
+
+	/**
+	 * Sets the timezone of the formatter. For compiled zones the calendar is
+	 * replaced by a WallCalendar, else Parse() would convert local times with
+	 * the current raw offset of the zone.
+	 */
+	private void applyZone(TimeZone zone) {
+		Calendar cal = sdf.getCalendar();
+		if (zone instanceof CompiledTimeZone && cal.getClass() == GregorianCalendar.class) {
+			CompiledTimeZone.WallCalendar wall = new CompiledTimeZone.WallCalendar(zone, Locale.ROOT);
+			wall.setGregorianChange(((GregorianCalendar) cal).getGregorianChange());
+			wall.setFirstDayOfWeek(cal.getFirstDayOfWeek());
+			wall.setMinimalDaysInFirstWeek(cal.getMinimalDaysInFirstWeek());
+			wall.setLenient(cal.isLenient());
+			sdf.setCalendar(wall);
+		}
+		sdf.setTimeZone(zone);
+	}
+
+	private void initialized(Locale locale, long start) {
+		this.locale = locale;
+		formatMetric = null;
+		parseMetric = null;
+		if (AHLocaleMetrics.enabled) {
+			AHLocaleMetrics.metric(AHLocaleMetrics.DATETIME_INITIALIZE, sdf.toPattern(), locale)
+					.measured(start);
+		}
 	}
 
 	/**
@@ -65,7 +136,9 @@ public class AHDateTime {
 	 * For allowed placeholders look here: <link>SimpleDateFormat|http://developer.android.com/reference/java/text/SimpleDateFormat.html</link>
 	 */
 	public void setPattern(String pattern) {
+		long start = System.nanoTime();
 		sdf.applyPattern(pattern);
+		initialized(locale, start);
 	}
 
 	public String getPattern() {
@@ -91,7 +164,17 @@ public class AHDateTime {
 	public String Format(long ticks) {
 		Date mydate = new Date(ticks);
 
-		return sdf.format(mydate);
+		if (!AHLocaleMetrics.enabled) {
+			return sdf.format(mydate);
+		}
+		AHLocaleMetrics.Metric m = formatMetric;
+		if (m == null) {
+			m = formatMetric = AHLocaleMetrics.metric(AHLocaleMetrics.DATETIME_FORMAT, sdf.toPattern(), locale);
+		}
+		long start = m.begin();
+		String ret = sdf.format(mydate);
+		m.end(start);
+		return ret;
 	}
 
 	/**
@@ -100,18 +183,45 @@ public class AHDateTime {
 	 * Throws an exception if the string can not be parsed.
 	 */
 	public long Parse(String date) {
+		AHLocaleMetrics.Metric m = null;
+		long start = AHLocaleMetrics.Metric.NOT_SAMPLED;
+		if (AHLocaleMetrics.enabled) {
+			m = parseMetric;
+			if (m == null) {
+				m = parseMetric = AHLocaleMetrics.metric(AHLocaleMetrics.DATETIME_PARSE, sdf.toPattern(), locale);
+			}
+			start = m.begin();
+		}
+
 		try {
-			return sdf.parse(date).getTime();
+			long ret = sdf.parse(date).getTime();
+			if (m != null) {
+				m.end(start);
+			}
+			return ret;
 		} catch (ParseException e) {
+			if (m != null) {
+				m.failed(start);
+			}
 			throw new RuntimeException("Unable to parse date string");
 		}
 	}
 	
+	/**
+	 * Returns a copy of the formatter for use on another thread.
+	 */
+	SimpleDateFormat copyFormat() {
+		return (SimpleDateFormat) sdf.clone();
+	}
+
 	/**
 	 * Sets or gets the timezone for the AHDateTime object
+	 * 
+	 * The timezone is shared with the AHTimeZone object. This is safe because
+	 * AHTimeZone never modifies a timezone once it is in use.
 	 */
 	public void setTimeZone(AHTimezone TimeZone) {
-		sdf.setTimeZone(TimeZone.tz);
+		applyZone(TimeZone.tz);
 	}
 
 	public AHTimezone getTimeZone() {
@@ -126,8 +236,7 @@ public class AHDateTime {
 	 * Style - Use constants SHORT, MEDIUM, LONG, FULL, DEFAULT
 	 */
 	public String GetDefaultTimePattern(BA ba, int Style) {
-		SimpleDateFormat sf = (SimpleDateFormat) SimpleDateFormat.getTimeInstance(Style);
-		return sf.toPattern();
+		return defaultPattern(NO_STYLE, Style, Locale.getDefault());
 	}
 	
 	/**
@@ -137,16 +246,14 @@ public class AHDateTime {
 	 * Locale - Reference to an AHLocale object
 	 */
 	public String GetDefaultTimePattern2(int Style, AHLocale Locale) {
-		SimpleDateFormat sf = (SimpleDateFormat) SimpleDateFormat.getTimeInstance(Style, Locale.myLocale);
-		return sf.toPattern();
+		return defaultPattern(NO_STYLE, Style, Locale.myLocale);
 	}
 	
 	/**
 	 * Return a short date pattern without year information
 	 */
 	public String GetShortDatePatternWithoutYear() {
-		SimpleDateFormat sf = (SimpleDateFormat) SimpleDateFormat.getDateInstance(SimpleDateFormat.SHORT);
-		return sf.toPattern().replaceAll("\\W?[Yy]+\\W?", "");
+		return defaultPattern(SimpleDateFormat.SHORT, NO_STYLE, Locale.getDefault()).replaceAll("\\W?[Yy]+\\W?", "");
 	}
 	
 	
@@ -156,8 +263,7 @@ public class AHDateTime {
 	 * Style - Use constants SHORT, MEDIUM, LONG, FULL, DEFAULT
 	 */
 	public String GetDefaultDatePattern(int Style) {
-		SimpleDateFormat sf = (SimpleDateFormat) SimpleDateFormat.getDateInstance(Style);
-		return sf.toPattern();
+		return defaultPattern(Style, NO_STYLE, Locale.getDefault());
 	}
 
 	/**
@@ -167,8 +273,7 @@ public class AHDateTime {
 	 * Locale - Reference to an AHLocale object
 	 */
 	public String GetDefaultDatePattern2(int Style, AHLocale Locale) {
-		SimpleDateFormat sf = (SimpleDateFormat) SimpleDateFormat.getDateInstance(Style, Locale.myLocale);
-		return sf.toPattern();
+		return defaultPattern(Style, NO_STYLE, Locale.myLocale);
 	}
 	
 	/**
@@ -178,8 +283,7 @@ public class AHDateTime {
 	 * TimeStyle - Style for Time
 	 */
 	public String GetDefaultDateTimePattern(int DateStyle, int TimeStyle) {
-		SimpleDateFormat sf = (SimpleDateFormat) SimpleDateFormat.getDateTimeInstance(DateStyle, TimeStyle);
-		return sf.toPattern();		
+		return defaultPattern(DateStyle, TimeStyle, Locale.getDefault());
 	}
 
 	/**
@@ -189,14 +293,13 @@ public class AHDateTime {
 	 * TimeStyle - Style for Time
 	 */
 	public String GetDefaultDateTimePattern2(int DateStyle, int TimeStyle, AHLocale Locale) {
-		SimpleDateFormat sf = (SimpleDateFormat) SimpleDateFormat.getDateTimeInstance(DateStyle, TimeStyle, Locale.myLocale);
-		return sf.toPattern();		
+		return defaultPattern(DateStyle, TimeStyle, Locale.myLocale);
 	}
 
 	/**
 	 * Returns true if the user preference settings is 24 hour format.
 	 */
 	public boolean is24HourFormat(BA ba) {
-		return DateFormat.is24HourFormat(ba.context);
+		return AHDateUtils.backend().is24HourFormat(ba);
 	}
 }
@@ -1,5 +1,12 @@
 package de.amberhome.locale;
 
+import java.text.DecimalFormatSymbols;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
 import android.text.format.DateUtils;
 import anywheresoftware.b4a.BA;
 import anywheresoftware.b4a.BA.ShortName;
@@ -13,9 +20,43 @@ import anywheresoftware.b4a.BA.ShortName;
 @ShortName("AHDateUtils")
 public class AHDateUtils {
 
+	public static final int BACKEND_ANDROID = 0;
+	public static final int BACKEND_JAVA = 1;
+
+	private static volatile DateUtilsBackend backend = "Dalvik".equals(System
+			.getProperty("java.vm.name")) ? new AndroidDateUtilsBackend()
+			: new JavaDateUtilsBackend();
+
 	public AHDateUtils() {
 	}
 
+	static DateUtilsBackend backend() {
+		return backend;
+	}
+
+	/**
+	 * Gets or sets the implementation of the formatting methods. This is a
+	 * global setting, it also affects AHDateTime.is24HourFormat().
+	 * 
+	 * BACKEND_ANDROID - uses the Android DateUtils (default on devices)
+	 * BACKEND_JAVA - plain Java implementation with the same flags. Works
+	 * without a device (default on other JVMs). Relative times are localized
+	 * in English, German, French, Spanish, Italian, Dutch and Portuguese,
+	 * other languages get the English strings.
+	 */
+	public int getBackend() {
+		return backend instanceof AndroidDateUtilsBackend ? BACKEND_ANDROID : BACKEND_JAVA;
+	}
+
+	public void setBackend(int Backend) {
+		if (Backend == getBackend()) {
+			return;
+		}
+		backend = Backend == BACKEND_ANDROID ? new AndroidDateUtilsBackend()
+				: new JavaDateUtilsBackend();
+		relativeCache.clear();
+	}
+
 	/**
 	 * Formats a date or a time according to the local conventions. There are
 	 * lots of options that allow the caller to control, for example, if the
@@ -26,24 +67,41 @@ public class AHDateUtils {
 	 * Flags - a bit mask of options
 	 */
 	public String FormatDateTime(BA ba, long Ticks, int Flags) {
-		return DateUtils.formatDateTime(ba.context, Ticks, Flags);
+		return backend.formatDateTime(ba, Ticks, Flags);
 	}
 
 	/**
 	 * Formats a date or a time range according to the local conventions.
 	 * 
-	 * Note that this is a convenience method. Using it involves creating an
-	 * internal Formatter instance on-the-fly, which is somewhat costly in terms
-	 * of memory and time.
-	 * 
 	 * StartTicks - start time 
 	 * EndTicks - end time 
 	 * Flags - a bit mask of options
 	 */
 	public String FormatDateRange(BA ba, long StartTicks, long EndTicks,
 			int Flags) {
-		return DateUtils.formatDateRange(ba.context, StartTicks, EndTicks,
-				Flags);
+		return backend.formatDateRange(ba, StartTicks, EndTicks, Flags);
+	}
+
+	/**
+	 * Formats many date or time ranges at once. StartTicks and EndTicks must
+	 * have the same size. Returns an array with one string for each range.
+	 * 
+	 * StartTicks - array of start times
+	 * EndTicks - array of end times
+	 * Flags - a bit mask of options
+	 */
+	public String[] FormatDateRanges(BA ba, long[] StartTicks, long[] EndTicks,
+			int Flags) {
+		if (StartTicks.length != EndTicks.length) {
+			throw new IllegalArgumentException("StartTicks and EndTicks must have the same size");
+		}
+
+		DateUtilsBackend formatter = backend;
+		String[] ret = new String[StartTicks.length];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = formatter.formatDateRange(ba, StartTicks[i], EndTicks[i], Flags);
+		}
+		return ret;
 	}
 
 	/**
@@ -53,7 +111,96 @@ public class AHDateUtils {
 	 * Seconds - the elapsed time in seconds.
 	 */
 	public String FormatElapsedTime(long Seconds) {
-		return DateUtils.formatElapsedTime(Seconds);
+		return backend.formatElapsedTime(Seconds);
+	}
+
+	/**
+	 * Two digit tables with the digits of one locale.
+	 */
+	private static final class DigitTables {
+		final Locale locale;
+		final char[] tens = new char[100];
+		final char[] ones = new char[100];
+
+		DigitTables(Locale locale) {
+			this.locale = locale;
+			char zero = new DecimalFormatSymbols(locale).getZeroDigit();
+			for (int i = 0; i < 100; i++) {
+				tens[i] = (char) (zero + i / 10);
+				ones[i] = (char) (zero + i % 10);
+			}
+		}
+	}
+
+	private static volatile DigitTables digitTables;
+
+	private static DigitTables digitTables() {
+		Locale loc = Locale.getDefault();
+		DigitTables tables = digitTables;
+		if (tables == null || !tables.locale.equals(loc)) {
+			tables = new DigitTables(loc);
+			digitTables = tables;
+		}
+		return tables;
+	}
+
+	/**
+	 * Same as FormatElapsedTime() but writes the result into a Char array
+	 * instead of creating a new String. Only the characters that changed since
+	 * the last value in the array are written. Use this for timers that are
+	 * updated very often. The digits of the device locale are used.
+	 * 
+	 * Buffer - Char array that receives the text. It must be large enough
+	 * for the result (8 chars are enough for up to 99 hours).
+	 * Seconds - the elapsed time in seconds. Negative values are shown as 0.
+	 * 
+	 * Returns the length of the text in Buffer.
+	 */
+	public int FormatElapsedTimeInto(char[] Buffer, long Seconds) {
+		DigitTables tables = digitTables();
+		char[] tens = tables.tens;
+		char[] ones = tables.ones;
+
+		if (Seconds < 0) {
+			Seconds = 0;
+		}
+		long hours = Seconds / 3600;
+		int minutes = (int) (Seconds / 60 % 60);
+		int seconds = (int) (Seconds % 60);
+
+		int hourDigits = 0;
+		if (hours > 0) {
+			for (long h = hours; h > 0; h /= 10) {
+				hourDigits++;
+			}
+		}
+		int length = hourDigits > 0 ? hourDigits + 6 : 5;
+		if (Buffer.length < length) {
+			throw new IllegalArgumentException("Buffer too small, " + length + " chars needed");
+		}
+
+		int pos = 0;
+		if (hourDigits > 0) {
+			pos = hourDigits;
+			for (long h = hours; h > 0; h /= 10) {
+				put(Buffer, --pos, ones[(int) (h % 10)]);
+			}
+			pos = hourDigits;
+			put(Buffer, pos++, ':');
+		}
+		put(Buffer, pos++, tens[minutes]);
+		put(Buffer, pos++, ones[minutes]);
+		put(Buffer, pos++, ':');
+		put(Buffer, pos++, tens[seconds]);
+		put(Buffer, pos, ones[seconds]);
+
+		return length;
+	}
+
+	private static void put(char[] buffer, int index, char c) {
+		if (buffer[index] != c) {
+			buffer[index] = c;
+		}
 	}
 
 	/**
@@ -76,8 +223,8 @@ public class AHDateUtils {
 	 */
 	public CharSequence GetRelativeDateTimeString(BA ba, long Ticks,
 			long MinResolution, long TransitionResolution, int Flags) {
-		return DateUtils.getRelativeDateTimeString(ba.context, Ticks,
-				MinResolution, TransitionResolution, Flags);
+		return backend.getRelativeDateTimeString(ba, Ticks, MinResolution,
+				TransitionResolution, Flags);
 	}
 
 	/**
@@ -103,16 +250,231 @@ public class AHDateUtils {
 	 */
 	public CharSequence GetRelativeTimeSpanString(BA ba, long Ticks, long Now,
 			long MinResolution, int Flags) {
-		return DateUtils.getRelativeTimeSpanString(Ticks, Now, MinResolution,
+		return backend.getRelativeTimeSpanString(Ticks, Now, MinResolution,
 				Flags);
 	}
 
+	private static final int RELATIVE_CACHE_SIZE = 2048;
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	// Bucket key -> relative time string, see relativeBucket()
+	private static final ConcurrentHashMap<String, String> relativeCache = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Same as GetRelativeTimeSpanString() for many tick values at once. All
+	 * values are compared to the same Now. Ticks that land in the same bucket
+	 * (like "5 minutes ago" or "yesterday") share one cached string, so this is
+	 * much faster than calling GetRelativeTimeSpanString() for every value.
+	 * 
+	 * <b>Ticks</b> - array of times to describe, in milliseconds
+	 * 
+	 * Returns an array of strings with the same size as Ticks.
+	 */
+	public String[] GetRelativeTimeSpanStrings(BA ba, long[] Ticks, long Now,
+			long MinResolution, int Flags) {
+		String[] ret = new String[Ticks.length];
+		DateUtilsBackend formatter = backend;
+		TimeZone zone = AHTimezone.defaultZone();
+		GregorianCalendar cal = new GregorianCalendar(zone);
+		cal.setTimeInMillis(Now);
+		// The year is part of the key because absolute dates show it only
+		// if it is not the current year
+		String suffix = "|" + cal.get(Calendar.YEAR) + "|" + MinResolution + "|" + Flags
+				+ "|" + Locale.getDefault();
+
+		for (int i = 0; i < Ticks.length; i++) {
+			String key = relativeBucket(Ticks[i], Now, MinResolution, Flags, zone);
+			if (key == null) {
+				ret[i] = formatter.getRelativeTimeSpanString(Ticks[i], Now,
+						MinResolution, Flags).toString();
+				continue;
+			}
+
+			key += suffix;
+			String text = relativeCache.get(key);
+			if (text == null) {
+				text = formatter.getRelativeTimeSpanString(Ticks[i], Now,
+						MinResolution, Flags).toString();
+				if (relativeCache.size() >= RELATIVE_CACHE_SIZE) {
+					relativeCache.clear();
+				}
+				relativeCache.put(key, text);
+			}
+			ret[i] = text;
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a key that identifies the output of getRelativeTimeSpanString()
+	 * for this time. This follows the resolution steps of DateUtils: seconds,
+	 * minutes, hours, days, weeks (only with a MinResolution of a week) and
+	 * then an absolute date. Returns null if the
+	 * result should not be cached (absolute dates with time).
+	 */
+	private static String relativeBucket(long time, long now, long minResolution,
+			int flags, TimeZone zone) {
+		boolean past = now >= time;
+		long duration = Math.abs(now - time);
+		char sign = past ? '-' : '+';
+
+		if (duration < DateUtils.MINUTE_IN_MILLIS && minResolution < DateUtils.MINUTE_IN_MILLIS) {
+			return "s" + sign + duration / DateUtils.SECOND_IN_MILLIS;
+		} else if (duration < DateUtils.HOUR_IN_MILLIS && minResolution < DateUtils.HOUR_IN_MILLIS) {
+			return "m" + sign + duration / DateUtils.MINUTE_IN_MILLIS;
+		} else if (duration < DateUtils.DAY_IN_MILLIS && minResolution < DateUtils.DAY_IN_MILLIS) {
+			return "h" + sign + duration / DateUtils.HOUR_IN_MILLIS;
+		} else if (duration < DateUtils.WEEK_IN_MILLIS && minResolution < DateUtils.WEEK_IN_MILLIS) {
+			return "d" + sign + Math.abs(localDay(now, zone) - localDay(time, zone));
+		} else if (minResolution == DateUtils.WEEK_IN_MILLIS) {
+			return "w" + sign + duration / DateUtils.WEEK_IN_MILLIS;
+		} else if ((flags & DateUtils.FORMAT_SHOW_TIME) == 0) {
+			// The local day decides about the year, the date itself is shown
+			// in UTC with FORMAT_UTC
+			if ((flags & DateUtils.FORMAT_UTC) != 0) {
+				return "a" + localDay(time, zone) + "/" + localDay(time, UTC);
+			}
+			return "a" + localDay(time, zone);
+		}
+		return null;
+	}
+
+	private static long localDay(long time, TimeZone zone) {
+		long local = time + zone.getOffset(time);
+		long day = local / DateUtils.DAY_IN_MILLIS;
+		return local < 0 && local % DateUtils.DAY_IN_MILLIS != 0 ? day - 1 : day;
+	}
+
 	/**
 	 * Returns true if the supplied Ticks value is today else false
 	 * 
 	 */
 	public boolean IsToday(long Ticks) {
-		return DateUtils.isToday(Ticks);
+		return dayBoundaries().classify(Ticks) == DAY_TODAY;
+	}
+
+	public static final int DAY_FUTURE = 0;
+	public static final int DAY_TODAY = 1;
+	public static final int DAY_YESTERDAY = 2;
+	public static final int DAY_THIS_WEEK = 3;
+	public static final int DAY_OLDER = 4;
+
+	// How long the default timezone is trusted before it is checked again
+	private static final long ZONE_CHECK_INTERVAL = 1000;
+
+	/**
+	 * Local day boundaries of the current day in one timezone. Valid until
+	 * the next midnight.
+	 */
+	private static final class DayBoundaries {
+		final String zoneId;
+		final int rawOffset;
+		final long weekStart;
+		final long yesterdayStart;
+		final long todayStart;
+		final long tomorrowStart;
+		final long zoneCheckedAt;
+
+		DayBoundaries(TimeZone zone, long now) {
+			zoneId = zone.getID();
+			rawOffset = zone.getRawOffset();
+			zoneCheckedAt = now;
+
+			GregorianCalendar cal = new GregorianCalendar(zone);
+			cal.setTimeInMillis(now);
+			cal.set(Calendar.HOUR_OF_DAY, 0);
+			cal.set(Calendar.MINUTE, 0);
+			cal.set(Calendar.SECOND, 0);
+			cal.set(Calendar.MILLISECOND, 0);
+			todayStart = cal.getTimeInMillis();
+
+			int daysInWeek = (cal.get(Calendar.DAY_OF_WEEK) - cal.getFirstDayOfWeek() + 7) % 7;
+
+			cal.add(Calendar.DAY_OF_MONTH, 1);
+			tomorrowStart = cal.getTimeInMillis();
+			cal.add(Calendar.DAY_OF_MONTH, -2);
+			yesterdayStart = cal.getTimeInMillis();
+			cal.add(Calendar.DAY_OF_MONTH, 1 - daysInWeek);
+			weekStart = cal.getTimeInMillis();
+		}
+
+		DayBoundaries(DayBoundaries other, long now) {
+			zoneId = other.zoneId;
+			rawOffset = other.rawOffset;
+			weekStart = other.weekStart;
+			yesterdayStart = other.yesterdayStart;
+			todayStart = other.todayStart;
+			tomorrowStart = other.tomorrowStart;
+			zoneCheckedAt = now;
+		}
+
+		boolean sameZone(TimeZone zone) {
+			return zoneId.equals(zone.getID()) && rawOffset == zone.getRawOffset();
+		}
+
+		int classify(long ticks) {
+			if (ticks >= tomorrowStart) {
+				return DAY_FUTURE;
+			} else if (ticks >= todayStart) {
+				return DAY_TODAY;
+			} else if (ticks >= yesterdayStart) {
+				return DAY_YESTERDAY;
+			} else if (ticks >= weekStart) {
+				return DAY_THIS_WEEK;
+			}
+			return DAY_OLDER;
+		}
+	}
+
+	private static volatile DayBoundaries dayBoundaries;
+
+	/**
+	 * Returns the day boundaries for now. They are calculated again after
+	 * midnight or when the default timezone changed.
+	 */
+	private static DayBoundaries dayBoundaries() {
+		long now = System.currentTimeMillis();
+		DayBoundaries ret = dayBoundaries;
+		if (ret != null && now >= ret.todayStart && now < ret.tomorrowStart) {
+			if (now - ret.zoneCheckedAt < ZONE_CHECK_INTERVAL) {
+				return ret;
+			}
+			TimeZone zone = TimeZone.getDefault();
+			if (ret.sameZone(zone)) {
+				ret = new DayBoundaries(ret, now);
+			} else {
+				ret = new DayBoundaries(zone, now);
+			}
+		} else {
+			ret = new DayBoundaries(TimeZone.getDefault(), now);
+		}
+		dayBoundaries = ret;
+		return ret;
+	}
+
+	/**
+	 * Classifies the Ticks value relative to the current day in the default
+	 * timezone. Returns one of DAY_FUTURE (tomorrow or later), DAY_TODAY,
+	 * DAY_YESTERDAY, DAY_THIS_WEEK (earlier in the current week) or DAY_OLDER.
+	 * 
+	 * The day boundaries are cached until the next midnight, so this is very
+	 * fast and can be used for every row of a list.
+	 */
+	public int ClassifyDay(long Ticks) {
+		return dayBoundaries().classify(Ticks);
+	}
+
+	/**
+	 * Same as ClassifyDay() for an array of Ticks values. Returns an array with
+	 * the same size as Ticks.
+	 */
+	public int[] ClassifyDays(long[] Ticks) {
+		DayBoundaries boundaries = dayBoundaries();
+		int[] ret = new int[Ticks.length];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = boundaries.classify(Ticks[i]);
+		}
+		return ret;
 	}
 
 	public static final int FORMAT_12HOUR = DateUtils.FORMAT_12HOUR;
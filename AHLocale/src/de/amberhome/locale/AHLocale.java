@@ -19,19 +19,58 @@
 //   - AHTranslation - Support for Countries
 //   - AHTranslation - Support for default language
 //   - AHTranslation - Support for different file extensions
+// 1.17:
+//   - AHTranslator - Atomic WriteTranslation, sorted WriteTranslation2 and incremental WriteTranslationDelta
+//   - AHLocale - Cache calendar symbols per locale, new SharedArrays property
+//   - AHLocale - Indexed locale catalog, GetAvailableLocale(), GetAvailableLocalesByLanguage(), GetAvailableLocalesByCountry()
+//   - AHLocale - Fix string comparison in getAvailableLocales
+//   - AHLocaleNegotiator - new
+//   - AHLocale - Shared Locale objects and cached display names, new GetDisplayCountry2(), GetDisplayName2(), GetDisplayLanguage2()
+//   - AHLocale - Cached currency data, new HasCurrency property and GetCurrencyTable()
+//   - AHLocaleSnapshot - new
+//   - AHDateTime - Cache default date and time patterns
+//   - AHLocaleWarmup - new
+//   - AHLocale - Compare(), SortList(), SortArray() and CollatorStrength for locale aware sorting
+//   - AHTimeZone - Cached timezone catalog, new Regions, GetIdsByRegion(), SearchIds(), SearchIds2()
+//   - AHTimeZone - Transition tables for GetOffset() and InDaylightTime(), new SetTransitionWindow()
+//   - AHTimeZone - Batch conversion ToLocalFields() and ToLocalEpochDays()
+//   - AHTimeZone - Cached display names, new GetAllDisplayNames()
+//   - AHTimeZone - Timezones are shared and never modified, setID and setRawOffset create a new timezone
+//   - AHTimeZone - Compiled tzdata support, new LoadZoneFile(), LoadZoneBundle(), WriteZoneBundle() and IsCompiled
+//   - AHDateUtils - GetRelativeTimeSpanStrings() for batch relative time formatting
+//   - AHDateUtils - FormatDateRange reuses its Formatter, new FormatDateRanges()
+//   - AHDateUtils - FormatElapsedTimeInto() for garbage free timers
+//   - AHDateUtils - Cached day boundaries for IsToday(), new ClassifyDay() and ClassifyDays()
+//   - AHDateUtils - Pluggable backend with a plain Java implementation, new Backend property
+//   - AHLocaleMetrics - new
+//   - AHLocaleConverter - new
+//   - AHTranslator - Similar keys from a trigram index, new FindSimilarKey(), FindSimilarKeys(), MinSimilarity, FuzzyFallback and AnnotateMissing
 
 package de.amberhome.locale;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.text.DateFormatSymbols;
 import java.util.Currency;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import anywheresoftware.b4a.BA.Author;
 import anywheresoftware.b4a.BA.Hide;
 import anywheresoftware.b4a.BA.ShortName;
 import anywheresoftware.b4a.BA.Version;
 import anywheresoftware.b4a.objects.collections.List;
+import anywheresoftware.b4a.objects.collections.Map;
 
 /**
  * The AHLocale object allows you to access many locale aware values such as
@@ -41,7 +80,7 @@ import anywheresoftware.b4a.objects.collections.List;
  * or which languages and countries can be used.
  */
 @ShortName("AHLocale")
-@Version(1.16f)
+@Version(1.17f)
 @Author("Markus Stipp")
 public class AHLocale {
 
@@ -50,15 +89,174 @@ public class AHLocale {
 	//private Calendar myCalendar;
 
 	private boolean isInitialized = false;
+	private boolean sharedArrays = false;
+
+	/**
+	 * Immutable snapshot of the calendar related locale data. Built once per
+	 * Locale and shared by all AHLocale objects. The arrays must not be
+	 * modified.
+	 */
+	static final class CalendarData {
+		final String[] amPmStrings;
+		final String[] months;
+		final String[] shortMonths;
+		final String[] weekDays;
+		final String[] shortWeekDays;
+		final int firstDayOfWeek;
+
+		CalendarData(Locale loc) {
+			DateFormatSymbols dfs = new DateFormatSymbols(loc);
+			amPmStrings = dfs.getAmPmStrings();
+			months = dfs.getMonths();
+			shortMonths = dfs.getShortMonths();
+			weekDays = dfs.getWeekdays();
+			shortWeekDays = dfs.getShortWeekdays();
+			firstDayOfWeek = new GregorianCalendar(loc).getFirstDayOfWeek();
+		}
+
+		CalendarData(String[] amPmStrings, String[] months, String[] shortMonths,
+				String[] weekDays, String[] shortWeekDays, int firstDayOfWeek) {
+			this.amPmStrings = amPmStrings;
+			this.months = months;
+			this.shortMonths = shortMonths;
+			this.weekDays = weekDays;
+			this.shortWeekDays = shortWeekDays;
+			this.firstDayOfWeek = firstDayOfWeek;
+		}
+	}
+
+	private static final ConcurrentHashMap<Locale, CalendarData> calendarCache = new ConcurrentHashMap<Locale, CalendarData>();
+
+	static CalendarData calendarData(Locale loc) {
+		CalendarData data = calendarCache.get(loc);
+		if (data == null) {
+			data = new CalendarData(loc);
+			CalendarData existing = calendarCache.putIfAbsent(loc, data);
+			if (existing != null) {
+				data = existing;
+			}
+		}
+		return data;
+	}
+
+	private String[] array(String[] values) {
+		return sharedArrays ? values : values.clone();
+	}
 
 	public AHLocale() {
 	}
 
+	// Display names of myLocale in myLocale and in english, filled on first use
+	private DisplayNames localNames;
+	private DisplayNames englishNames;
+
 	private void init(Locale loc) {
 		myLocale = loc;
+		collator = null;
+		localNames = null;
+		englishNames = null;
 		isInitialized = true;
 	}
 
+	private static final ConcurrentHashMap<String, Locale> localeCache = new ConcurrentHashMap<String, Locale>();
+
+	/**
+	 * Returns a shared Locale object for the given language and country.
+	 */
+	static Locale internLocale(String language, String country) {
+		String key = language + "_" + country;
+		Locale loc = localeCache.get(key);
+		if (loc == null) {
+			loc = new Locale(language, country);
+			Locale existing = localeCache.putIfAbsent(key, loc);
+			if (existing != null) {
+				loc = existing;
+			}
+		}
+		return loc;
+	}
+
+	/**
+	 * Localized names of a locale in one display locale.
+	 */
+	private static final class DisplayNames {
+		final String country;
+		final String language;
+		final String name;
+
+		DisplayNames(Locale loc, Locale inLocale) {
+			country = loc.getDisplayCountry(inLocale);
+			language = loc.getDisplayLanguage(inLocale);
+			name = loc.getDisplayName(inLocale);
+		}
+
+		DisplayNames(String country, String language, String name) {
+			this.country = country;
+			this.language = language;
+			this.name = name;
+		}
+	}
+
+	// Display locale -> (locale -> names)
+	private static final ConcurrentHashMap<Locale, ConcurrentHashMap<Locale, DisplayNames>> displayNameCache = new ConcurrentHashMap<Locale, ConcurrentHashMap<Locale, DisplayNames>>();
+
+	private static ConcurrentHashMap<Locale, DisplayNames> displayNameTable(Locale inLocale) {
+		ConcurrentHashMap<Locale, DisplayNames> names = displayNameCache.get(inLocale);
+		if (names == null) {
+			names = new ConcurrentHashMap<Locale, DisplayNames>();
+			ConcurrentHashMap<Locale, DisplayNames> existing = displayNameCache.putIfAbsent(inLocale, names);
+			if (existing != null) {
+				names = existing;
+			}
+		}
+		return names;
+	}
+
+	private static DisplayNames displayNames(Locale loc, Locale inLocale) {
+		ConcurrentHashMap<Locale, DisplayNames> names = displayNameTable(inLocale);
+
+		DisplayNames ret = names.get(loc);
+		if (ret == null) {
+			ret = new DisplayNames(loc, inLocale);
+			names.putIfAbsent(loc, ret);
+		}
+		return ret;
+	}
+
+	//
+	// Cache preloading used by AHLocaleSnapshot
+	//
+
+	static void preloadCalendarData(Locale loc, String[] amPmStrings, String[] months,
+			String[] shortMonths, String[] weekDays, String[] shortWeekDays, int firstDayOfWeek) {
+		calendarCache.put(loc, new CalendarData(amPmStrings, months, shortMonths,
+				weekDays, shortWeekDays, firstDayOfWeek));
+	}
+
+	static void preloadDisplayNames(Locale loc, Locale inLocale, String country,
+			String language, String name) {
+		displayNameTable(inLocale).put(loc, new DisplayNames(country, language, name));
+	}
+
+	static void preloadCurrencyData(Locale loc, String code, String symbol, int fractionDigits) {
+		currencyCache.put(loc, code.length() == 0 ? CurrencyData.NO_CURRENCY
+				: new CurrencyData(code, symbol, fractionDigits));
+	}
+
+	private DisplayNames localNames() {
+		if (localNames == null) {
+			localNames = displayNames(myLocale, myLocale);
+		}
+		return localNames;
+	}
+
+	private DisplayNames englishNames() {
+		if (englishNames == null) {
+			englishNames = displayNames(myLocale, Locale.US);
+		}
+		return englishNames;
+	}
+
 	/**
 	 * Initializes the AHLocale object with the default locale.
 	 */
@@ -70,14 +268,14 @@ public class AHLocale {
 	 * Initializes the AHLocale object using the specified language.
 	 */
 	public void Initialize2(String language) {
-		init(new Locale(language, Locale.getDefault().getCountry()));
+		init(internLocale(language, Locale.getDefault().getCountry()));
 	}
 
 	/**
 	 * Initializes the AHLocale object using the specified language and country.
 	 */
 	public void Initialize3(String language, String country) {
-		init(new Locale(language, country));
+		init(internLocale(language, country));
 	}
 	
 	/**
@@ -89,26 +287,116 @@ public class AHLocale {
 	}
 
 	/**
-	 * Returns the system's installed locales. These are returned as a B4A List of AHLocale Objects.
-	 * There are only locales in this list which have a non empty country and language.
+	 * Catalog of the installed locales with lookup indexes. It is built once on
+	 * first use (lazy holder idiom). Only the immutable Locale objects are
+	 * shared, every call returns new AHLocale objects.
 	 */
-	static public List getAvailableLocales() {
+	private static final class LocaleCatalog {
+		static final LocaleCatalog INSTANCE = new LocaleCatalog();
+
+		final Locale[] all;
+		final HashMap<String, Locale> byISOCode = new HashMap<String, Locale>();
+		final HashMap<String, Locale[]> byLanguage;
+		final HashMap<String, Locale[]> byCountry;
+
+		private LocaleCatalog() {
+			ArrayList<Locale> locales = new ArrayList<Locale>();
+			HashMap<String, ArrayList<Locale>> languages = new HashMap<String, ArrayList<Locale>>();
+			HashMap<String, ArrayList<Locale>> countries = new HashMap<String, ArrayList<Locale>>();
+
+			for (Locale loc : Locale.getAvailableLocales()) {
+				if (loc.getCountry().length() > 0 && loc.getLanguage().length() > 0)
+				{
+					locales.add(loc);
+					byISOCode.put(loc.toString(), loc);
+					addTo(languages, loc.getLanguage(), loc);
+					addTo(countries, loc.getCountry(), loc);
+				}
+			}
+
+			all = locales.toArray(new Locale[locales.size()]);
+			byLanguage = toArrays(languages);
+			byCountry = toArrays(countries);
+		}
+
+		private static void addTo(HashMap<String, ArrayList<Locale>> index, String key, Locale loc) {
+			ArrayList<Locale> list = index.get(key);
+			if (list == null) {
+				list = new ArrayList<Locale>();
+				index.put(key, list);
+			}
+			list.add(loc);
+		}
+
+		private static HashMap<String, Locale[]> toArrays(HashMap<String, ArrayList<Locale>> index) {
+			HashMap<String, Locale[]> ret = new HashMap<String, Locale[]>(index.size() * 2);
+			for (java.util.Map.Entry<String, ArrayList<Locale>> e : index.entrySet()) {
+				ret.put(e.getKey(), e.getValue().toArray(new Locale[e.getValue().size()]));
+			}
+			return ret;
+		}
+	}
+
+	// AHLocale objects are mutable, so callers always get their own
+	private static AHLocale wrap(Locale loc) {
+		AHLocale ret = new AHLocale();
+		ret.init(loc);
+		return ret;
+	}
+
+	private static List toList(Locale[] locales) {
 		List ret = new List();
 		ret.Initialize();
 
-		for (Locale loc : Locale.getAvailableLocales()) {
-			if (loc.getCountry() != "" && loc.getLanguage() != "")
-			{
-				AHLocale ahloc = new AHLocale();
-				ahloc.init(loc);
-
-				ret.Add(ahloc);
+		if (locales != null) {
+			for (Locale loc : locales) {
+				ret.Add(wrap(loc));
 			}
 		}
 
 		return ret;
 	}
 
+	/**
+	 * Returns the installed locales without the AHLocale wrappers.
+	 */
+	static Locale[] availableLocales() {
+		return LocaleCatalog.INSTANCE.all.clone();
+	}
+
+	/**
+	 * Returns the system's installed locales. These are returned as a B4A List of AHLocale Objects.
+	 * There are only locales in this list which have a non empty country and language.
+	 */
+	static public List getAvailableLocales() {
+		return toList(LocaleCatalog.INSTANCE.all);
+	}
+
+	/**
+	 * Returns the installed locale with the given ISO code like <strong>de_DE</strong> or
+	 * Null if there is no such locale on the device.
+	 */
+	static public AHLocale GetAvailableLocale(String ISOCode) {
+		Locale loc = LocaleCatalog.INSTANCE.byISOCode.get(ISOCode);
+		return loc == null ? null : wrap(loc);
+	}
+
+	/**
+	 * Returns a B4A List of all installed locales with the given language code like <strong>de</strong>.
+	 * The list is empty if there is no such locale.
+	 */
+	static public List GetAvailableLocalesByLanguage(String Language) {
+		return toList(LocaleCatalog.INSTANCE.byLanguage.get(Language));
+	}
+
+	/**
+	 * Returns a B4A List of all installed locales with the given country code like <strong>CH</strong>.
+	 * The list is empty if there is no such locale.
+	 */
+	static public List GetAvailableLocalesByCountry(String Country) {
+		return toList(LocaleCatalog.INSTANCE.byCountry.get(Country));
+	}
+
 	//
 	// Locale related methods and properties
 	//
@@ -141,7 +429,7 @@ public class AHLocale {
 	 * the empty string if this locale does not correspond to a specific country
 	 */
 	public String getDisplayCountry() {
-		return myLocale.getDisplayCountry(myLocale);
+		return localNames().country;
 	}
 
 	/**
@@ -149,7 +437,7 @@ public class AHLocale {
 	 * the empty string if this locale does not correspond to a specific country
 	 */
 	public String getEnglishCountry() {
-		return myLocale.getDisplayCountry(Locale.US);
+		return englishNames().country;
 	}
 
 	/**
@@ -161,7 +449,7 @@ public class AHLocale {
 	 * 
 	 */
 	public String getDisplayName() {
-		return myLocale.getDisplayName(myLocale);
+		return localNames().name;
 	}
 
 	/**
@@ -173,7 +461,35 @@ public class AHLocale {
 	 * 
 	 */
 	public String getEnglishName() {
-		return myLocale.getDisplayName(Locale.US);
+		return englishNames().name;
+	}
+
+	/**
+	 * Returns the name of this locale's country, localized to the given locale.
+	 * 
+	 * InLocale - AHLocale object for the language of the name
+	 */
+	public String GetDisplayCountry2(AHLocale InLocale) {
+		return displayNames(myLocale, InLocale.myLocale).country;
+	}
+
+	/**
+	 * Returns this locale's language name, country name, and variant, localized
+	 * to the given locale.
+	 * 
+	 * InLocale - AHLocale object for the language of the name
+	 */
+	public String GetDisplayName2(AHLocale InLocale) {
+		return displayNames(myLocale, InLocale.myLocale).name;
+	}
+
+	/**
+	 * Returns the name of this locale's language, localized to the given locale.
+	 * 
+	 * InLocale - AHLocale object for the language of the name
+	 */
+	public String GetDisplayLanguage2(AHLocale InLocale) {
+		return displayNames(myLocale, InLocale.myLocale).language;
 	}
 
 	/**
@@ -189,7 +505,7 @@ public class AHLocale {
 	 * language name is unknown, the language code is returned.
 	 */
 	public String getDisplayLanguage() {
-		return myLocale.getDisplayLanguage(myLocale);
+		return localNames().language;
 	}
 
 	/**
@@ -197,7 +513,7 @@ public class AHLocale {
 	 * language name is unknown, the language code is returned.
 	 */
 	public String getEnglishLanguage() {
-		return myLocale.getDisplayLanguage(Locale.US);
+		return englishNames().language;
 	}
 
 	/**
@@ -237,72 +553,364 @@ public class AHLocale {
 	// Currency Symbol Methods
 	//
 
+	/**
+	 * Currency metadata of a locale. Locales without a currency (no country or
+	 * an unknown country) use NO_CURRENCY.
+	 */
+	private static final class CurrencyData {
+		static final CurrencyData NO_CURRENCY = new CurrencyData("", "", -1);
+
+		final String code;
+		final String symbol;
+		final int fractionDigits;
+
+		CurrencyData(String code, String symbol, int fractionDigits) {
+			this.code = code;
+			this.symbol = symbol;
+			this.fractionDigits = fractionDigits;
+		}
+
+		static CurrencyData create(Locale loc) {
+			if (loc.getCountry().length() != 2) {
+				return NO_CURRENCY;
+			}
+
+			Currency cur;
+			try {
+				cur = Currency.getInstance(loc);
+			} catch (IllegalArgumentException e) {
+				return NO_CURRENCY;
+			}
+			if (cur == null) {
+				return NO_CURRENCY;
+			}
+			return new CurrencyData(cur.getCurrencyCode(), cur.getSymbol(loc), cur.getDefaultFractionDigits());
+		}
+	}
+
+	private static final ConcurrentHashMap<Locale, CurrencyData> currencyCache = new ConcurrentHashMap<Locale, CurrencyData>();
+
+	private static CurrencyData currencyData(Locale loc) {
+		CurrencyData data = currencyCache.get(loc);
+		if (data == null) {
+			data = CurrencyData.create(loc);
+			currencyCache.putIfAbsent(loc, data);
+		}
+		return data;
+	}
+
+	/**
+	 * Returns true if a currency is known for this locale. If not, CurrencySymbol
+	 * and CurrencyCode return an empty string and CurrencyFractionDigits returns -1.
+	 */
+	public boolean getHasCurrency() {
+		return currencyData(myLocale) != CurrencyData.NO_CURRENCY;
+	}
+
 	/**
 	 * Returns the localized currency symbol for this currency in locale.
 	 */
 	public String getCurrencySymbol() {
-		return Currency.getInstance(myLocale).getSymbol();
+		return currencyData(myLocale).symbol;
 	}
 
 	/**
 	 * Returns this currency's ISO 4217 currency code.
 	 */
 	public String getCurrencyCode() {
-		return Currency.getInstance(myLocale).getCurrencyCode();
+		return currencyData(myLocale).code;
 	}
 
 	/**
 	 * Returns the default number of fraction digits for this currency.
 	 */
 	public int getCurrencyFractionDigits(){
-		return Currency.getInstance(myLocale).getDefaultFractionDigits();
+		return currencyData(myLocale).fractionDigits;
+	}
+
+	/**
+	 * Returns the currency data of all available locales which have a currency.
+	 * The result is a Map with the ISO code of the locale (like <strong>de_DE</strong>)
+	 * as key and a Map with the keys "Code", "Symbol" and "FractionDigits" as value.
+	 */
+	static public Map GetCurrencyTable() {
+		Map ret = new Map();
+		ret.Initialize();
+
+		for (Locale loc : LocaleCatalog.INSTANCE.all) {
+			CurrencyData data = currencyData(loc);
+			if (data != CurrencyData.NO_CURRENCY) {
+				Map entry = new Map();
+				entry.Initialize();
+				entry.Put("Code", data.code);
+				entry.Put("Symbol", data.symbol);
+				entry.Put("FractionDigits", data.fractionDigits);
+				ret.Put(loc.toString(), entry);
+			}
+		}
+
+		return ret;
 	}
 
 	//
 	// Calendar related Methods and properties
 	//
 
+	/**
+	 * If set to true the calendar methods (AmPmStrings, Months, ShortMonths,
+	 * WeekDays, ShortWeekDays) return the cached arrays directly instead of a
+	 * copy. The arrays are shared between all AHLocale objects with the same
+	 * locale so you must not modify them.
+	 * 
+	 * Default is false.
+	 */
+	public boolean getSharedArrays() {
+		return sharedArrays;
+	}
+
+	public void setSharedArrays(boolean Value) {
+		sharedArrays = Value;
+	}
+
 	/**
 	 * Returns the array of strings which represent AM and PM.
 	 */
 	public String[] getAmPmStrings(){
-		return new DateFormatSymbols(myLocale).getAmPmStrings();
+		return array(calendarData(myLocale).amPmStrings);
 	}
 
 	/**
 	 * Returns the array of strings containing the full names of the months.
 	 */
 	public String[] getMonths() {
-		return new DateFormatSymbols(myLocale).getMonths();
+		return array(calendarData(myLocale).months);
 	}
 
 	/**
 	 * Returns the array of strings containing the abbreviated names of the months.
 	 */
 	public String[] getShortMonths(){
-		return new DateFormatSymbols(myLocale).getShortMonths();
+		return array(calendarData(myLocale).shortMonths);
 	}
 
 	/**
 	 * Returns the array of strings containing the full names of the days of the week.
 	 */
 	public String[] getWeekDays(){
-		return new DateFormatSymbols(myLocale).getWeekdays();
+		return array(calendarData(myLocale).weekDays);
 	}
 
 	/**
 	 * Returns the array of strings containing the abbreviated names of the days of the week.
 	 */
 	public String[] getShortWeekDays(){
-		return new DateFormatSymbols(myLocale).getShortWeekdays();
+		return array(calendarData(myLocale).shortWeekDays);
 	}
 
 	/**
 	 * Gets the first day of the week
 	 */
 	public int getFirstDayOfWeek() {
-		return new GregorianCalendar(myLocale).getFirstDayOfWeek();
+		return calendarData(myLocale).firstDayOfWeek;
 	}
 
 
+	//
+	// Collation
+	//
+
+	private static final int KEY_CACHE_SIZE = 4096;
+	private static final int PARALLEL_SORT_THRESHOLD = 10000;
+
+	private Collator collator;
+	private int collatorStrength = Collator.TERTIARY;
+	private LinkedHashMap<String, CollationKey> keyCache;
+
+	private Collator collator() {
+		if (collator == null) {
+			collator = Collator.getInstance(myLocale);
+			collator.setStrength(collatorStrength);
+			keyCache = new LinkedHashMap<String, CollationKey>(KEY_CACHE_SIZE * 2, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(java.util.Map.Entry<String, CollationKey> eldest) {
+					return size() > KEY_CACHE_SIZE;
+				}
+			};
+		}
+		return collator;
+	}
+
+	/**
+	 * Sets or gets the strength of the string comparison used by Compare(),
+	 * SortList() and SortArray(). Use Collator constants PRIMARY (0), SECONDARY (1),
+	 * TERTIARY (2) or IDENTICAL (3). Default is TERTIARY.
+	 */
+	public int getCollatorStrength() {
+		return collatorStrength;
+	}
+
+	public void setCollatorStrength(int Strength) {
+		collatorStrength = Strength;
+		collator = null;
+	}
+
+	/**
+	 * Compares two strings with the sorting rules of this locale. Returns a
+	 * negative value, 0 or a positive value if String1 is less, equal or
+	 * greater than String2.
+	 */
+	public int Compare(String String1, String String2) {
+		return collator().compare(String1, String2);
+	}
+
+	/**
+	 * Sorts a List of strings in place with the sorting rules of this locale.
+	 * The collation key of each item is calculated only once. Large lists are
+	 * processed on multiple threads.
+	 */
+	public void SortList(List Values) {
+		Object[] items = new Object[Values.getSize()];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = Values.Get(i);
+		}
+
+		sort(items);
+
+		for (int i = 0; i < items.length; i++) {
+			Values.Set(i, items[i]);
+		}
+	}
+
+	/**
+	 * Sorts an array of strings in place with the sorting rules of this locale.
+	 */
+	public void SortArray(String[] Values) {
+		sort(Values);
+	}
+
+	private static final class SortEntry implements Comparable<SortEntry> {
+		final CollationKey key;
+		final Object value;
+
+		SortEntry(CollationKey key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(SortEntry another) {
+			return key.compareTo(another.key);
+		}
+	}
+
+	private void sort(Object[] items) {
+		SortEntry[] entries = new SortEntry[items.length];
+		String[] values = new String[items.length];
+		Collator col = collator();
+
+		// Take the keys from the cache, the distinct missing strings are
+		// calculated once below
+		HashMap<String, CollationKey> missing = new HashMap<String, CollationKey>();
+		for (int i = 0; i < items.length; i++) {
+			values[i] = String.valueOf(items[i]);
+			CollationKey key = keyCache.get(values[i]);
+			if (key != null) {
+				entries[i] = new SortEntry(key, items[i]);
+			} else {
+				missing.put(values[i], null);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			String[] pending = missing.keySet().toArray(new String[missing.size()]);
+			CollationKey[] keys = new CollationKey[pending.length];
+			if (pending.length < PARALLEL_SORT_THRESHOLD) {
+				for (int i = 0; i < pending.length; i++) {
+					keys[i] = col.getCollationKey(pending[i]);
+				}
+			} else {
+				fillKeysParallel(col, pending, keys);
+			}
+
+			for (int i = 0; i < pending.length; i++) {
+				missing.put(pending[i], keys[i]);
+				keyCache.put(pending[i], keys[i]);
+			}
+			for (int i = 0; i < items.length; i++) {
+				if (entries[i] == null) {
+					entries[i] = new SortEntry(missing.get(values[i]), items[i]);
+				}
+			}
+		}
+
+		// Stable merge sort on the precomputed keys
+		Arrays.sort(entries);
+
+		for (int i = 0; i < items.length; i++) {
+			items[i] = entries[i].value;
+		}
+	}
+
+	/**
+	 * Shared pool for the collation keys of large sorts, created on first use
+	 * (lazy holder idiom).
+	 */
+	private static final class SortExecutor {
+		static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+		static final ExecutorService INSTANCE = Executors.newFixedThreadPool(THREADS,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "AHLocaleSort");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Calculates the collation keys in chunks on the shared pool. The first
+	 * chunk runs on the calling thread. Each chunk uses its own Collator
+	 * because Collator objects are not thread safe.
+	 */
+	private static void fillKeysParallel(Collator col, final String[] values, final CollationKey[] keys) {
+		int threads = SortExecutor.THREADS;
+		int chunk = (values.length + threads - 1) / threads;
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>(threads);
+
+		for (int t = 1; t < threads; t++) {
+			final int from = t * chunk;
+			final int to = Math.min(values.length, from + chunk);
+			if (from >= to) {
+				break;
+			}
+			final Collator threadCollator = (Collator) col.clone();
+			futures.add(SortExecutor.INSTANCE.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = from; i < to; i++) {
+						keys[i] = threadCollator.getCollationKey(values[i]);
+					}
+				}
+			}));
+		}
+
+		for (int i = 0; i < Math.min(values.length, chunk); i++) {
+			keys[i] = col.getCollationKey(values[i]);
+		}
+
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while sorting");
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
 }
@@ -0,0 +1,651 @@
+package de.amberhome.locale;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import anywheresoftware.b4a.BA;
+import anywheresoftware.b4a.BA.Events;
+import anywheresoftware.b4a.BA.ShortName;
+import anywheresoftware.b4a.keywords.Common;
+
+/**
+ * With the AHLocaleConverter object you can convert the dates and numbers in
+ * a CSV or TSV file from one locale to another, for example "17.10.2026" and
+ * "1.234,56" (de_DE) to "10/17/2026" and "1,234.56" (en_US).
+ *
+ * For each column that should be converted add an AHDateTime or AHNumeric
+ * object for the source and one for the target format. All other columns
+ * are copied unchanged. Values that can not be parsed are copied unchanged
+ * and counted in FailedValues. Dates and numbers are parsed strictly, for
+ * example "31.02.2020" or "1.5" (de_DE) are parse errors.
+ *
+ * The source file must be valid in the given charset, the conversion fails
+ * with the row of the first malformed byte sequence.
+ *
+ * The file is read and written in chunks which are converted in parallel, so
+ * the memory use does not depend on the size of the file.
+ */
+@ShortName("AHLocaleConverter")
+@Events(values = { "Done (Success As Boolean, Rows As Long)" })
+public class AHLocaleConverter {
+
+	// Characters per chunk, a chunk is always cut at the end of a row
+	private static final int CHUNK_SIZE = 256 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private BA ba;
+	private String eventName;
+	private char separator = ',';
+	private int headerLines;
+	private String charset = "UTF-8";
+	private int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+	private final ArrayList<Column> columns = new ArrayList<Column>();
+	private volatile long failedValues;
+
+	/**
+	 * Conversion of one column. The formatters are not thread safe, every
+	 * chunk works on its own copy.
+	 */
+	private abstract static class Column {
+		final int index;
+
+		Column(int index) {
+			this.index = index;
+		}
+
+		abstract Column copy();
+
+		/**
+		 * Returns the converted value or null if it can not be parsed.
+		 */
+		abstract String convert(String value);
+	}
+
+	private static final class DateColumn extends Column {
+		private final DateFormat source;
+		private final DateFormat target;
+		private final ParsePosition pos = new ParsePosition(0);
+
+		DateColumn(int index, DateFormat source, DateFormat target) {
+			super(index);
+			this.source = source;
+			this.target = target;
+		}
+
+		@Override
+		Column copy() {
+			return new DateColumn(index, (DateFormat) source.clone(), (DateFormat) target.clone());
+		}
+
+		@Override
+		String convert(String value) {
+			pos.setIndex(0);
+			pos.setErrorIndex(-1);
+			Date date = source.parse(value, pos);
+			if (date == null || pos.getIndex() != value.length()) {
+				return null;
+			}
+			return target.format(date);
+		}
+	}
+
+	private static final class NumberColumn extends Column {
+		private final NumberFormat source;
+		private final NumberFormat target;
+		private final ParsePosition pos = new ParsePosition(0);
+
+		NumberColumn(int index, NumberFormat source, NumberFormat target) {
+			super(index);
+			this.source = source;
+			this.target = target;
+		}
+
+		@Override
+		Column copy() {
+			return new NumberColumn(index, (NumberFormat) source.clone(), (NumberFormat) target.clone());
+		}
+
+		@Override
+		String convert(String value) {
+			if (!validGrouping(value)) {
+				return null;
+			}
+			pos.setIndex(0);
+			pos.setErrorIndex(-1);
+			Number number = source.parse(value, pos);
+			if (number == null || pos.getIndex() != value.length()) {
+				return null;
+			}
+			return target.format(number);
+		}
+
+		/**
+		 * DecimalFormat ignores the position of grouping separators, so "1.5"
+		 * would be parsed as 15 with de_DE. Every group but the first must
+		 * have exactly the grouping size.
+		 */
+		private boolean validGrouping(String value) {
+			if (!(source instanceof DecimalFormat)) {
+				return true;
+			}
+			DecimalFormat format = (DecimalFormat) source;
+			DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+			char grouping = symbols.getGroupingSeparator();
+			int size = format.getGroupingSize();
+
+			int i = 0;
+			int length = value.length();
+			while (i < length && !Character.isDigit(value.charAt(i))) {
+				i++;
+			}
+			int group = 0;
+			boolean grouped = false;
+			for (; i < length; i++) {
+				char c = value.charAt(i);
+				if (Character.isDigit(c)) {
+					group++;
+				} else if (c == grouping) {
+					if (group == 0 || group > size || (grouped && group != size)) {
+						return false;
+					}
+					grouped = true;
+					group = 0;
+				} else {
+					break;
+				}
+			}
+			return !grouped || group == size;
+		}
+	}
+
+	private static final class ChunkResult {
+		final ByteBuffer bytes;
+		final long rows;
+		final long failures;
+
+		ChunkResult(ByteBuffer bytes, long rows, long failures) {
+			this.bytes = bytes;
+			this.rows = rows;
+			this.failures = failures;
+		}
+	}
+
+	public AHLocaleConverter() {
+	}
+
+	/**
+	 * Initializes the object and sets the Sub that will handle the Done
+	 * event of ConvertAsync().
+	 *
+	 * Separator - field separator, usually "," or ";" for CSV and TAB for TSV
+	 */
+	public void Initialize(BA ba, String EventName, String Separator) {
+		this.ba = ba;
+		this.eventName = EventName.toLowerCase(BA.cul);
+		setSeparator(Separator);
+		columns.clear();
+	}
+
+	/**
+	 * Gets or sets the field separator.
+	 */
+	public String getSeparator() {
+		return String.valueOf(separator);
+	}
+
+	public void setSeparator(String Separator) {
+		if (Separator.length() != 1 || Separator.charAt(0) == '"'
+				|| Separator.charAt(0) == '\r' || Separator.charAt(0) == '\n') {
+			throw new IllegalArgumentException("Invalid separator: " + Separator);
+		}
+		separator = Separator.charAt(0);
+	}
+
+	/**
+	 * Gets or sets the number of lines at the start of the file that are
+	 * copied unchanged (column titles). Default is 0.
+	 */
+	public int getHeaderLines() {
+		return headerLines;
+	}
+
+	public void setHeaderLines(int Lines) {
+		headerLines = Lines;
+	}
+
+	/**
+	 * Gets or sets the encoding of the source and target file. Default is
+	 * UTF-8.
+	 */
+	public String getCharset() {
+		return charset;
+	}
+
+	public void setCharset(String Charset) {
+		charset = Charset;
+	}
+
+	/**
+	 * Gets or sets the number of threads used for the conversion. Default is
+	 * the number of processors.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int Threads) {
+		threads = Math.max(1, Threads);
+	}
+
+	/**
+	 * Number of values that could not be parsed during the last conversion.
+	 */
+	public long getFailedValues() {
+		return failedValues;
+	}
+
+	/**
+	 * Converts the dates in a column. The first column has the index 0.
+	 *
+	 * Source - AHDateTime object with the pattern and locale of the file
+	 * Target - AHDateTime object with the pattern and locale of the result
+	 */
+	public void AddDateColumn(int Column, AHDateTime Source, AHDateTime Target) {
+		DateFormat source = Source.copyFormat();
+		// Invalid dates like "31.02.2020" fail instead of rolling over
+		source.setLenient(false);
+		columns.add(new DateColumn(Column, source, Target.copyFormat()));
+	}
+
+	/**
+	 * Converts the numbers in a column. The first column has the index 0.
+	 *
+	 * Source - AHNumeric object with the pattern and locale of the file
+	 * Target - AHNumeric object with the pattern and locale of the result
+	 */
+	public void AddNumberColumn(int Column, AHNumeric Source, AHNumeric Target) {
+		NumberFormat source = Source.copyFormat();
+		if (source instanceof DecimalFormat) {
+			// Exact values, a double loses digits of large and decimal numbers
+			((DecimalFormat) source).setParseBigDecimal(true);
+		}
+		columns.add(new NumberColumn(Column, source, Target.copyFormat()));
+	}
+
+	/**
+	 * Removes all column conversions.
+	 */
+	public void ClearColumns() {
+		columns.clear();
+	}
+
+	/**
+	 * Converts a file in the background and raises the Done event when
+	 * finished.
+	 */
+	public void ConvertAsync(final String SourceDir, final String SourceFile,
+			final String TargetDir, final String TargetFile) {
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				boolean success = false;
+				long rows = 0;
+				try {
+					rows = Convert(SourceDir, SourceFile, TargetDir, TargetFile);
+					success = true;
+				} catch (IOException e) {
+					Common.Log("AHLocaleConverter: " + e.getMessage());
+				} catch (RuntimeException e) {
+					Common.Log("AHLocaleConverter: " + e);
+				}
+				ba.raiseEventFromDifferentThread(AHLocaleConverter.this, null, 0,
+						eventName + "_done", false, new Object[] { success, rows });
+			}
+		}, "AHLocaleConverter");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Converts a file and returns the number of rows (without header lines).
+	 * The target file is first written to a temporary file and then renamed.
+	 */
+	public long Convert(String SourceDir, String SourceFile, String TargetDir, String TargetFile)
+			throws IOException {
+		final Charset cs = Charset.forName(charset);
+		final Column[] spec = columnsByIndex();
+		final char sep = separator;
+		failedValues = 0;
+
+		java.io.File target = new java.io.File(TargetDir, TargetFile);
+		java.io.File temp = new java.io.File(TargetDir, TargetFile + ".tmp");
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "AHLocaleConverter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		FileInputStream input = new FileInputStream(new java.io.File(SourceDir, SourceFile));
+		FileOutputStream output = null;
+		long rows = 0;
+		long failures = 0;
+		boolean done = false;
+		try {
+			output = new FileOutputStream(temp);
+			FileChannel in = input.getChannel();
+			FileChannel out = output.getChannel();
+
+			CharsetDecoder decoder = cs.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+			ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+			StringBuilder pending = new StringBuilder(CHUNK_SIZE + BUFFER_SIZE);
+
+			// Chunks in the order of the file, at most two per thread
+			ArrayDeque<Future<ChunkResult>> inFlight = new ArrayDeque<Future<ChunkResult>>();
+			int maxInFlight = threads * 2;
+
+			int skipRecords = headerLines;
+			long records = 0;
+			int scanned = 0;
+			boolean quoted = false;
+			int recordEnd = 0;
+			boolean eof = false;
+
+			while (!eof) {
+				eof = in.read(bytes) < 0;
+				bytes.flip();
+				CoderResult decoded = decoder.decode(bytes, chars, eof);
+				if (eof && !decoded.isError()) {
+					decoder.flush(chars);
+				}
+				bytes.compact();
+				chars.flip();
+				pending.append(chars);
+				chars.clear();
+
+				// Find the end of the last complete row, separators and line
+				// breaks inside of quotes do not count
+				int length = pending.length();
+				for (; scanned < length; scanned++) {
+					char c = pending.charAt(scanned);
+					if (c == '"') {
+						quoted = !quoted;
+					} else if (!quoted) {
+						if (c == '\n') {
+							recordEnd = scanned + 1;
+							records++;
+						} else if (c == '\r') {
+							if (scanned + 1 >= length) {
+								// Need the next character for \r\n
+								break;
+							}
+							if (pending.charAt(scanned + 1) != '\n') {
+								recordEnd = scanned + 1;
+								records++;
+							}
+						}
+					}
+					if (skipRecords > 0 && recordEnd == scanned + 1) {
+						skipRecords--;
+						if (skipRecords == 0) {
+							write(out, cs.encode(CharBuffer.wrap(pending, 0, recordEnd)));
+							pending.delete(0, recordEnd);
+							length = pending.length();
+							scanned = -1;
+							recordEnd = 0;
+						}
+					}
+				}
+
+				if (decoded.isError()) {
+					// The rows before it are complete, so this is the row
+					// with the malformed bytes (header lines included)
+					throw new IOException("Invalid " + cs.name() + " data in row " + (records + 1));
+				}
+
+				int cut = eof ? pending.length() : recordEnd;
+				if (skipRecords > 0 || cut == 0 || (!eof && pending.length() < CHUNK_SIZE)) {
+					if (eof && cut > 0) {
+						// The file has less rows than header lines
+						write(out, cs.encode(CharBuffer.wrap(pending, 0, cut)));
+					}
+					continue;
+				}
+
+				final String chunk = pending.substring(0, cut);
+				pending.delete(0, cut);
+				scanned -= cut;
+				recordEnd = 0;
+
+				if (inFlight.size() >= maxInFlight) {
+					ChunkResult result = get(inFlight.poll());
+					write(out, result.bytes);
+					rows += result.rows;
+					failures += result.failures;
+				}
+				inFlight.add(executor.submit(new Callable<ChunkResult>() {
+					@Override
+					public ChunkResult call() {
+						return convertChunk(chunk, spec, sep, cs);
+					}
+				}));
+			}
+
+			while (!inFlight.isEmpty()) {
+				ChunkResult result = get(inFlight.poll());
+				write(out, result.bytes);
+				rows += result.rows;
+				failures += result.failures;
+			}
+			done = true;
+		} finally {
+			executor.shutdownNow();
+			try {
+				if (output != null) {
+					output.close();
+				}
+			} finally {
+				input.close();
+				// After close, an open file can not be deleted on Windows
+				if (!done) {
+					temp.delete();
+				}
+			}
+		}
+		failedValues = failures;
+
+		if (!temp.renameTo(target)) {
+			if (!target.delete() || !temp.renameTo(target)) {
+				temp.delete();
+				throw new IOException("Unable to replace " + target);
+			}
+		}
+		return rows;
+	}
+
+	private Column[] columnsByIndex() {
+		int size = 0;
+		for (Column c : columns) {
+			size = Math.max(size, c.index + 1);
+		}
+		Column[] ret = new Column[size];
+		for (Column c : columns) {
+			ret[c.index] = c;
+		}
+		return ret;
+	}
+
+	private static void write(FileChannel out, ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			out.write(bytes);
+		}
+	}
+
+	private static ChunkResult get(Future<ChunkResult> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new IOException("Conversion interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(String.valueOf(e.getCause()));
+		}
+	}
+
+	/**
+	 * Converts a chunk of complete rows. Fields that are not converted are
+	 * copied as they are, converted fields are quoted if needed.
+	 */
+	static ChunkResult convertChunk(String chunk, Column[] spec, char sep, Charset cs) {
+		Column[] columns = new Column[spec.length];
+		for (int i = 0; i < spec.length; i++) {
+			columns[i] = spec[i] == null ? null : spec[i].copy();
+		}
+
+		StringBuilder out = new StringBuilder(chunk.length() + chunk.length() / 8);
+		int length = chunk.length();
+		long rows = 0;
+		long failures = 0;
+		int field = 0;
+		int i = 0;
+
+		while (i < length) {
+			int start = i;
+			boolean quoted = chunk.charAt(i) == '"';
+			if (quoted) {
+				i++;
+				while (i < length) {
+					if (chunk.charAt(i) == '"') {
+						if (i + 1 < length && chunk.charAt(i + 1) == '"') {
+							i += 2;
+							continue;
+						}
+						i++;
+						break;
+					}
+					i++;
+				}
+			}
+			while (i < length) {
+				char c = chunk.charAt(i);
+				if (c == sep || c == '\r' || c == '\n') {
+					break;
+				}
+				i++;
+			}
+
+			Column column = field < columns.length ? columns[field] : null;
+			String converted = null;
+			if (column != null && i > start) {
+				String value = quoted ? unquote(chunk, start, i) : chunk.substring(start, i);
+				converted = column.convert(value.trim());
+				if (converted == null) {
+					failures++;
+				}
+			}
+			if (converted != null) {
+				appendField(out, converted, sep);
+			} else {
+				out.append(chunk, start, i);
+			}
+
+			if (i >= length) {
+				rows++;
+				break;
+			}
+			char c = chunk.charAt(i);
+			out.append(c);
+			i++;
+			if (c == sep) {
+				field++;
+				if (i >= length) {
+					rows++;
+				}
+				continue;
+			}
+			if (c == '\r' && i < length && chunk.charAt(i) == '\n') {
+				out.append('\n');
+				i++;
+			}
+			field = 0;
+			rows++;
+		}
+
+		return new ChunkResult(cs.encode(CharBuffer.wrap(out)), rows, failures);
+	}
+
+	private static String unquote(String chunk, int start, int end) {
+		StringBuilder sb = new StringBuilder(end - start);
+		int i = start + 1;
+		while (i < end) {
+			char c = chunk.charAt(i);
+			if (c == '"') {
+				if (i + 1 < end && chunk.charAt(i + 1) == '"') {
+					sb.append(c);
+					i += 2;
+					continue;
+				}
+				// Closing quote, anything after it is kept as it is
+				sb.append(chunk, i + 1, end);
+				break;
+			}
+			sb.append(c);
+			i++;
+		}
+		return sb.toString();
+	}
+
+	private static void appendField(StringBuilder out, String value, char sep) {
+		boolean quote = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == sep || c == '"' || c == '\r' || c == '\n') {
+				quote = true;
+				break;
+			}
+		}
+		if (!quote) {
+			out.append(value);
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				out.append('"');
+			}
+			out.append(c);
+		}
+		out.append('"');
+	}
+}
@@ -0,0 +1,328 @@
+package de.amberhome.locale;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import anywheresoftware.b4a.BA;
+import anywheresoftware.b4a.BA.Events;
+import anywheresoftware.b4a.BA.ShortName;
+import anywheresoftware.b4a.objects.collections.Map;
+
+/**
+ * With the AHLocaleMetrics object you can find out which formatting calls
+ * are used how often and how long they take. When enabled, the following
+ * calls are counted for each pattern and locale:
+ *
+ * AHDateTime.Initialize (all Initialize methods and setting the Pattern),
+ * AHDateTime.Format, AHDateTime.Parse, AHNumeric.Initialize, AHNumeric.Format,
+ * AHNumeric.Parse and AHTimeZone.GetOffset (for each timezone ID).
+ *
+ * Failed Parse calls are counted separately. The duration of every n-th call
+ * (see SampleRate) is measured. Initializations are always measured.
+ *
+ * Metrics are disabled by default. When disabled the cost of a call is
+ * one additional check.
+ */
+@ShortName("AHLocaleMetrics")
+@Events(values = { "Report (Snapshot As Map)" })
+public class AHLocaleMetrics {
+
+	static final String DATETIME_INITIALIZE = "AHDateTime.Initialize";
+	static final String DATETIME_FORMAT = "AHDateTime.Format";
+	static final String DATETIME_PARSE = "AHDateTime.Parse";
+	static final String NUMERIC_INITIALIZE = "AHNumeric.Initialize";
+	static final String NUMERIC_FORMAT = "AHNumeric.Format";
+	static final String NUMERIC_PARSE = "AHNumeric.Parse";
+	static final String TIMEZONE_GETOFFSET = "AHTimeZone.GetOffset";
+
+	// Checked by the instrumented methods before anything else
+	static volatile boolean enabled;
+
+	private static volatile int sampleMask = 63;
+
+	// Once the limit is reached new patterns are counted as "*"
+	private static final int MAX_METRICS = 1024;
+	private static final ConcurrentHashMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+
+	// Counters are striped by thread to avoid contention, each stripe on its
+	// own cache line (8 longs)
+	private static final int STRIPES = 16;
+	private static final int STRIDE = 8;
+	private static final int BUCKETS = 64;
+
+	/**
+	 * Counters and latency histogram of one operation with one pattern and
+	 * locale. Metric objects are never removed, Reset() clears them in place,
+	 * so the instrumented objects can keep a reference.
+	 */
+	static final class Metric {
+		static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+		final String operation;
+		final String pattern;
+		final String locale;
+		private final AtomicLongArray calls = new AtomicLongArray(STRIPES * STRIDE);
+		private final AtomicLongArray failures = new AtomicLongArray(STRIPES * STRIDE);
+		// Bucket i counts durations below 2^i nanoseconds
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+		private final AtomicLong sampledNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		Metric(String operation, String pattern, String locale) {
+			this.operation = operation;
+			this.pattern = pattern;
+			this.locale = locale;
+		}
+
+		private static int stripe() {
+			return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+		}
+
+		/**
+		 * Counts a call. Returns the start time if this call is measured, else
+		 * NOT_SAMPLED.
+		 */
+		long begin() {
+			long count = calls.incrementAndGet(stripe());
+			return (count & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+		}
+
+		void end(long start) {
+			if (start != NOT_SAMPLED) {
+				record(System.nanoTime() - start);
+			}
+		}
+
+		void failed(long start) {
+			failures.incrementAndGet(stripe());
+			end(start);
+		}
+
+		/**
+		 * Counts and measures a call that is always measured.
+		 */
+		void measured(long start) {
+			calls.incrementAndGet(stripe());
+			record(System.nanoTime() - start);
+		}
+
+		private void record(long nanos) {
+			if (nanos < 0) {
+				nanos = 0;
+			}
+			histogram.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+			sampledNanos.addAndGet(nanos);
+			long max = maxNanos.get();
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+				max = maxNanos.get();
+			}
+		}
+
+		private static long sum(AtomicLongArray stripes) {
+			long ret = 0;
+			for (int i = 0; i < STRIPES; i++) {
+				ret += stripes.get(i * STRIDE);
+			}
+			return ret;
+		}
+
+		void reset() {
+			for (int i = 0; i < STRIPES; i++) {
+				calls.set(i * STRIDE, 0);
+				failures.set(i * STRIDE, 0);
+			}
+			for (int i = 0; i < BUCKETS; i++) {
+				histogram.set(i, 0);
+			}
+			sampledNanos.set(0);
+			maxNanos.set(0);
+		}
+
+		Map toMap() {
+			long[] buckets = new long[BUCKETS];
+			long samples = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets[i] = histogram.get(i);
+				samples += buckets[i];
+			}
+
+			Map ret = new Map();
+			ret.Initialize();
+			ret.Put("Operation", operation);
+			ret.Put("Pattern", pattern);
+			ret.Put("Locale", locale);
+			ret.Put("Calls", sum(calls));
+			ret.Put("Failures", sum(failures));
+			ret.Put("Samples", samples);
+			ret.Put("MeanNanos", samples == 0 ? 0L : sampledNanos.get() / samples);
+			ret.Put("P50Nanos", percentile(buckets, samples, 50));
+			ret.Put("P90Nanos", percentile(buckets, samples, 90));
+			ret.Put("P99Nanos", percentile(buckets, samples, 99));
+			ret.Put("MaxNanos", maxNanos.get());
+			return ret;
+		}
+
+		// Upper bound of the bucket that contains the percentile
+		private static long percentile(long[] buckets, long samples, int percent) {
+			if (samples == 0) {
+				return 0L;
+			}
+			long rank = (samples * percent + 99) / 100;
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				count += buckets[i];
+				if (count >= rank) {
+					return i >= 63 ? Long.MAX_VALUE : 1L << i;
+				}
+			}
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Returns the Metric for the operation, pattern and locale. Only called
+	 * when metrics are enabled, the instrumented objects keep the result.
+	 */
+	static Metric metric(String operation, String pattern, Locale locale) {
+		String loc = locale == null ? "" : locale.toString();
+		String key = operation + "|" + pattern + "|" + loc;
+		Metric ret = metrics.get(key);
+		if (ret == null) {
+			if (metrics.size() >= MAX_METRICS) {
+				pattern = "*";
+				loc = "*";
+				key = operation + "|*|*";
+				ret = metrics.get(key);
+				if (ret != null) {
+					return ret;
+				}
+			}
+			ret = new Metric(operation, pattern, loc);
+			Metric old = metrics.putIfAbsent(key, ret);
+			if (old != null) {
+				ret = old;
+			}
+		}
+		return ret;
+	}
+
+	private BA ba;
+	private String eventName;
+	private ScheduledExecutorService reporter;
+
+	public AHLocaleMetrics() {
+	}
+
+	/**
+	 * Initializes the object and sets the Sub that will handle the Report
+	 * event. Only needed for StartReporting().
+	 */
+	public void Initialize(BA ba, String EventName) {
+		this.ba = ba;
+		this.eventName = EventName.toLowerCase(BA.cul);
+	}
+
+	/**
+	 * Enables or disables the metrics for all objects. Disabled by default.
+	 */
+	public boolean getEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean Enabled) {
+		enabled = Enabled;
+	}
+
+	/**
+	 * Gets or sets how often the duration of a call is measured. With 64
+	 * (the default) every 64th call is measured. The value is rounded up to a
+	 * power of two, 1 measures every call.
+	 */
+	public int getSampleRate() {
+		return sampleMask + 1;
+	}
+
+	public void setSampleRate(int Rate) {
+		int rate = 1;
+		while (rate < Rate && rate < (1 << 30)) {
+			rate <<= 1;
+		}
+		sampleMask = rate - 1;
+	}
+
+	/**
+	 * Returns the current metrics. The keys are "Operation|Pattern|Locale",
+	 * the values are Maps with the following entries:
+	 *
+	 * Operation, Pattern, Locale - what was counted
+	 * Calls - number of calls
+	 * Failures - number of failed Parse calls
+	 * Samples - number of measured calls
+	 * MeanNanos - mean duration of the measured calls
+	 * P50Nanos, P90Nanos, P99Nanos - percentiles of the duration. These are
+	 * accurate to a power of two.
+	 * MaxNanos - longest measured duration
+	 */
+	public Map GetSnapshot() {
+		ArrayList<String> keys = new ArrayList<String>(metrics.keySet());
+		Collections.sort(keys);
+
+		Map ret = new Map();
+		ret.Initialize();
+		for (String key : keys) {
+			ret.Put(key, metrics.get(key).toMap());
+		}
+		return ret;
+	}
+
+	/**
+	 * Sets all counters to zero.
+	 */
+	public void Reset() {
+		for (Metric m : metrics.values()) {
+			m.reset();
+		}
+	}
+
+	/**
+	 * Raises the Report event with a snapshot (see GetSnapshot()) every
+	 * Interval milliseconds. The event is raised on the main thread.
+	 */
+	public void StartReporting(long Interval) {
+		StopReporting();
+		reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "AHLocaleMetrics");
+				t.setDaemon(true);
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			}
+		});
+		reporter.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				ba.raiseEventFromDifferentThread(AHLocaleMetrics.this, null, 0,
+						eventName + "_report", false, new Object[] { GetSnapshot() });
+			}
+		}, Interval, Interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the Report events.
+	 */
+	public void StopReporting() {
+		if (reporter != null) {
+			reporter.shutdownNow();
+			reporter = null;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package de.amberhome.locale;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+import anywheresoftware.b4a.BA.ShortName;
+import anywheresoftware.b4a.objects.collections.List;
+
+/**
+ * With the AHLocaleNegotiator object you can find the best matching locale
+ * for a list of language preferences like the Accept-Language header of a
+ * HTTP request ("de-CH,de;q=0.9,en;q=0.8").
+ *
+ * Initialize the object once with the supported locales (for example the
+ * languages you have translation files for) and call Negotiate() for every
+ * preference list. The supported locales are indexed on initialization and
+ * the results for recently used preference lists are cached.
+ *
+ * Matching is done in order of the preference weights. For every preference
+ * an exact language_country match is tried first, then a match on the
+ * language only. If no preference matches, the default is returned.
+ */
+@ShortName("AHLocaleNegotiator")
+public class AHLocaleNegotiator {
+
+	private static final int CACHE_SIZE = 64;
+
+	private HashMap<String, String> byCode;
+	private HashMap<String, String> byLanguage;
+	private String defaultLocale;
+	private LinkedHashMap<String, String> cache;
+
+	public AHLocaleNegotiator() {
+	}
+
+	/**
+	 * Initializes the object with a List of supported locale codes.
+	 *
+	 * Supported - List of codes like "de", "de_DE" or "en-US"
+	 * Default - Value that is returned if no preference matches
+	 */
+	public void Initialize(List Supported, String Default) {
+		ArrayList<String> codes = new ArrayList<String>(Supported.getSize());
+		for (int i = 0; i < Supported.getSize(); i++) {
+			codes.add(String.valueOf(Supported.Get(i)));
+		}
+		init(codes, Default);
+	}
+
+	/**
+	 * Initializes the object with all locales installed on the device. The
+	 * result of Negotiate() is an ISO code like <strong>de_DE</strong>.
+	 *
+	 * Default - Value that is returned if no preference matches
+	 */
+	public void InitializeAvailable(String Default) {
+		Locale[] locales = AHLocale.availableLocales();
+		ArrayList<String> codes = new ArrayList<String>(locales.length);
+		for (Locale loc : locales) {
+			codes.add(loc.toString());
+		}
+		init(codes, Default);
+	}
+
+	private void init(ArrayList<String> codes, String def) {
+		byCode = new HashMap<String, String>(codes.size() * 2);
+		byLanguage = new HashMap<String, String>(codes.size() * 2);
+		defaultLocale = def;
+		cache = new LinkedHashMap<String, String>(CACHE_SIZE * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(java.util.Map.Entry<String, String> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+
+		for (String code : codes) {
+			String[] parts = split(code);
+			if (parts == null) {
+				continue;
+			}
+			boolean plain = parts[1].length() == 0;
+			String key = plain ? parts[0] : parts[0] + "_" + parts[1];
+			if (!byCode.containsKey(key)) {
+				byCode.put(key, code);
+				// A plain language entry wins over any language_country entry
+				if (plain) {
+					byLanguage.put(parts[0], code);
+				}
+			}
+			if (!plain && !byLanguage.containsKey(parts[0])) {
+				byLanguage.put(parts[0], code);
+			}
+		}
+	}
+
+	/**
+	 * Returns if the object is initialized
+	 */
+	public boolean IsInitialized() {
+		return byCode != null;
+	}
+
+	/**
+	 * Returns the supported locale that matches the given preferences best.
+	 *
+	 * Preferences - Comma separated list of language tags with optional
+	 * weights like "de-CH,de;q=0.9,en;q=0.8"
+	 */
+	public String Negotiate(String Preferences) {
+		String ret;
+		synchronized (cache) {
+			ret = cache.get(Preferences);
+		}
+		if (ret != null) {
+			return ret;
+		}
+
+		ret = defaultLocale;
+		for (String[] pref : parse(Preferences)) {
+			String match = match(pref[0], pref[1]);
+			if (match != null) {
+				ret = match;
+				break;
+			}
+		}
+
+		synchronized (cache) {
+			cache.put(Preferences, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the supported locale that matches the given language and country.
+	 * Returns the default if there is no match.
+	 */
+	public String Negotiate2(String Language, String Country) {
+		String match = match(Language.toLowerCase(Locale.US), Country.toUpperCase(Locale.US));
+		return match != null ? match : defaultLocale;
+	}
+
+	private String match(String language, String country) {
+		if (country.length() > 0) {
+			String ret = byCode.get(language + "_" + country);
+			if (ret != null) {
+				return ret;
+			}
+		}
+		return byLanguage.get(language);
+	}
+
+	/**
+	 * Splits a code like "de_DE", "de-DE" or "zh-Hant-TW" into a normalized
+	 * language and country. Returns null for empty codes and wildcards.
+	 */
+	private static String[] split(String code) {
+		String[] tags = code.trim().split("[-_]");
+		if (tags.length == 0 || tags[0].length() == 0 || tags[0].equals("*")) {
+			return null;
+		}
+
+		String country = "";
+		for (int i = 1; i < tags.length; i++) {
+			String tag = tags[i];
+			if (tag.length() == 2 || (tag.length() == 3 && Character.isDigit(tag.charAt(0)))) {
+				country = tag.toUpperCase(Locale.US);
+				break;
+			}
+		}
+		return new String[] { tags[0].toLowerCase(Locale.US), country };
+	}
+
+	/**
+	 * Parses the preference list and returns [language, country] pairs sorted
+	 * by weight. Entries with equal weight keep their order.
+	 */
+	private static ArrayList<String[]> parse(String preferences) {
+		final HashMap<String[], Float> weights = new HashMap<String[], Float>();
+		ArrayList<String[]> ret = new ArrayList<String[]>();
+
+		for (String entry : preferences.split(",")) {
+			String[] fields = entry.split(";");
+			float q = 1f;
+			for (int i = 1; i < fields.length; i++) {
+				String param = fields[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						q = Float.parseFloat(param.substring(2));
+					} catch (NumberFormatException e) {
+						q = 0f;
+					}
+				}
+			}
+
+			String[] pref = split(fields[0]);
+			if (pref != null && q > 0f) {
+				weights.put(pref, q);
+				ret.add(pref);
+			}
+		}
+
+		Collections.sort(ret, new Comparator<String[]>() {
+			@Override
+			public int compare(String[] lhs, String[] rhs) {
+				return Float.compare(weights.get(rhs), weights.get(lhs));
+			}
+		});
+		return ret;
+	}
+}
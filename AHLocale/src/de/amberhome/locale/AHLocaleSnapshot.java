@@ -0,0 +1,241 @@
+package de.amberhome.locale;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import anywheresoftware.b4a.BA.ShortName;
+import anywheresoftware.b4a.objects.collections.List;
+
+/**
+ * With the AHLocaleSnapshot object you can save the locale data your program
+ * needs at startup into one compact binary file and load it on later starts.
+ *
+ * The snapshot contains for every given locale the calendar symbols, the
+ * display names (localized and english), the currency data and the default
+ * date and time patterns of AHDateTime. It also contains the available
+ * timezone IDs of AHTimeZone.
+ *
+ * After Load() the AHLocale, AHDateTime and AHTimeZone methods answer these
+ * values from the snapshot without loading the locale data of the device.
+ *
+ * Note that a snapshot is a copy of the device data at the time it was
+ * written. The snapshot stores the Java, OS and tzdata version it was written
+ * with and Load() ignores it when one of them changed. Write it again in this
+ * case or if the device language changes.
+ */
+@ShortName("AHLocaleSnapshot")
+public class AHLocaleSnapshot {
+
+	private static final int MAGIC = 0x41484C53; // "AHLS"
+	private static final int VERSION = 2;
+
+	private static final int[] STYLES = { SimpleDateFormat.FULL,
+			SimpleDateFormat.LONG, SimpleDateFormat.MEDIUM, SimpleDateFormat.SHORT };
+
+	public AHLocaleSnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot file for the given locales.
+	 *
+	 * Locales - List of AHLocale objects
+	 */
+	public void Write(String Dir, String FileName, List Locales) throws IOException {
+		java.io.File target = new java.io.File(Dir, FileName);
+		java.io.File temp = new java.io.File(Dir, FileName + ".tmp");
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(temp)));
+		boolean done = false;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, platformVersion());
+
+			out.writeInt(Locales.getSize());
+			for (int i = 0; i < Locales.getSize(); i++) {
+				writeLocale(out, (AHLocale) Locales.Get(i));
+			}
+
+			writeStrings(out, AHTimezone.availableIds());
+			done = true;
+		} finally {
+			out.close();
+			if (!done) {
+				temp.delete();
+			}
+		}
+
+		if (!temp.renameTo(target)) {
+			if (!target.delete() || !temp.renameTo(target)) {
+				temp.delete();
+				throw new IOException("Unable to replace " + target);
+			}
+		}
+	}
+
+	private static void writeLocale(DataOutputStream out, AHLocale ahloc) throws IOException {
+		Locale loc = ahloc.myLocale;
+		AHLocale english = new AHLocale();
+		english.InitializeUS();
+
+		writeString(out, loc.getLanguage());
+		writeString(out, loc.getCountry());
+
+		AHLocale.CalendarData calendar = AHLocale.calendarData(loc);
+		writeStrings(out, calendar.amPmStrings);
+		writeStrings(out, calendar.months);
+		writeStrings(out, calendar.shortMonths);
+		writeStrings(out, calendar.weekDays);
+		writeStrings(out, calendar.shortWeekDays);
+		out.writeInt(calendar.firstDayOfWeek);
+
+		writeString(out, ahloc.getDisplayCountry());
+		writeString(out, ahloc.getDisplayLanguage());
+		writeString(out, ahloc.getDisplayName());
+		writeString(out, ahloc.GetDisplayCountry2(english));
+		writeString(out, ahloc.GetDisplayLanguage2(english));
+		writeString(out, ahloc.GetDisplayName2(english));
+
+		writeString(out, ahloc.getCurrencyCode());
+		writeString(out, ahloc.getCurrencySymbol());
+		out.writeInt(ahloc.getCurrencyFractionDigits());
+
+		for (int dateStyle : STYLES) {
+			writeString(out, AHDateTime.defaultPattern(dateStyle, AHDateTime.NO_STYLE, loc));
+			writeString(out, AHDateTime.defaultPattern(AHDateTime.NO_STYLE, dateStyle, loc));
+			for (int timeStyle : STYLES) {
+				writeString(out, AHDateTime.defaultPattern(dateStyle, timeStyle, loc));
+			}
+		}
+	}
+
+	/**
+	 * Loads a snapshot file written with Write(). Returns false if the file
+	 * does not exist, was written by an incompatible version or on another
+	 * Java, OS or tzdata version. In this case nothing is loaded and the
+	 * device locale data is used as usual.
+	 */
+	public boolean Load(String Dir, String FileName) throws IOException {
+		java.io.File file = new java.io.File(Dir, FileName);
+		if (!file.exists()) {
+			return false;
+		}
+
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buf.remaining() < 8 || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+				return false;
+			}
+
+			try {
+				if (!platformVersion().equals(readString(buf))) {
+					return false;
+				}
+
+				int count = buf.getInt();
+				for (int i = 0; i < count; i++) {
+					readLocale(buf);
+				}
+
+				AHTimezone.preloadAvailableIds(readStrings(buf));
+			} catch (BufferUnderflowException e) {
+				throw new IOException("Truncated snapshot file " + file);
+			}
+		} finally {
+			in.close();
+		}
+		return true;
+	}
+
+	private static void readLocale(MappedByteBuffer buf) throws IOException {
+		Locale loc = AHLocale.internLocale(readString(buf), readString(buf));
+
+		AHLocale.preloadCalendarData(loc, readStrings(buf), readStrings(buf),
+				readStrings(buf), readStrings(buf), readStrings(buf), buf.getInt());
+
+		AHLocale.preloadDisplayNames(loc, loc, readString(buf), readString(buf), readString(buf));
+		AHLocale.preloadDisplayNames(loc, Locale.US, readString(buf), readString(buf), readString(buf));
+
+		AHLocale.preloadCurrencyData(loc, readString(buf), readString(buf), buf.getInt());
+
+		for (int dateStyle : STYLES) {
+			AHDateTime.preloadPattern(dateStyle, AHDateTime.NO_STYLE, loc, readString(buf));
+			AHDateTime.preloadPattern(AHDateTime.NO_STYLE, dateStyle, loc, readString(buf));
+			for (int timeStyle : STYLES) {
+				AHDateTime.preloadPattern(dateStyle, timeStyle, loc, readString(buf));
+			}
+		}
+	}
+
+	/**
+	 * Versions of the platform that provides the locale and timezone data.
+	 * On Android the build fingerprint and the ICU tzdata version are added,
+	 * tzdata can be updated without a new OS build.
+	 */
+	static String platformVersion() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(System.getProperty("java.version")).append('|')
+				.append(System.getProperty("java.vm.version")).append('|')
+				.append(System.getProperty("os.version"));
+		try {
+			sb.append('|').append(Class.forName("android.os.Build").getField("FINGERPRINT").get(null));
+			sb.append('|').append(Class.forName("android.icu.util.TimeZone")
+					.getMethod("getTZDataVersion").invoke(null));
+		} catch (Exception e) {
+			// Not on Android or older than Android 7
+		}
+		return sb.toString();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = (value == null ? "" : value).getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+		out.writeInt(values.length);
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	/**
+	 * Reads a length field. A string needs at least minSize bytes per element,
+	 * so a length that does not fit into the rest of the file is corrupt.
+	 */
+	private static int readLength(MappedByteBuffer buf, int minSize) throws IOException {
+		int length = buf.getInt();
+		if (length < 0 || (long) length * minSize > buf.remaining()) {
+			throw new IOException("Corrupt snapshot file, invalid length " + length);
+		}
+		return length;
+	}
+
+	private static String readString(MappedByteBuffer buf) throws IOException {
+		byte[] bytes = new byte[readLength(buf, 1)];
+		buf.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	private static String[] readStrings(MappedByteBuffer buf) throws IOException {
+		// Every string has at least its 4 byte length field
+		String[] ret = new String[readLength(buf, 4)];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = readString(buf);
+		}
+		return ret;
+	}
+}
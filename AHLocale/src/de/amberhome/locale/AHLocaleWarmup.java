@@ -0,0 +1,152 @@
+package de.amberhome.locale;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import anywheresoftware.b4a.BA;
+import anywheresoftware.b4a.BA.Events;
+import anywheresoftware.b4a.BA.ShortName;
+import anywheresoftware.b4a.objects.collections.List;
+import anywheresoftware.b4a.objects.collections.Map;
+
+/**
+ * With the AHLocaleWarmup object you can load the locale, timezone and
+ * formatter data of the device in the background before it is used the first
+ * time. This avoids the delay of the first AHDateTime.Format(),
+ * AHNumeric.Format(), AHLocale.Months or AHTimeZone.GetDisplayName() call for
+ * a locale.
+ *
+ * The work is done on a small pool of background threads. When everything is
+ * loaded the Done event is raised with a Map of the time in milliseconds each
+ * item took.
+ */
+@ShortName("AHLocaleWarmup")
+@Events(values = { "Done (Timings As Map)" })
+public class AHLocaleWarmup {
+
+	private BA ba;
+	private String eventName;
+
+	public AHLocaleWarmup() {
+	}
+
+	/**
+	 * Initializes the object and sets the Sub that will handle the Done event.
+	 */
+	public void Initialize(BA ba, String EventName) {
+		this.ba = ba;
+		this.eventName = EventName.toLowerCase(BA.cul);
+	}
+
+	/**
+	 * Starts loading the data in the background.
+	 *
+	 * Locales - List of AHLocale objects
+	 * TimeZoneIDs - List of timezone IDs like "Europe/Berlin"
+	 * Threads - Number of background threads to use
+	 */
+	public void Start(List Locales, List TimeZoneIDs, int Threads) {
+		final int localeCount = Locales.getSize();
+		final int count = localeCount + TimeZoneIDs.getSize();
+		final String[] names = new String[count];
+		final long[] timings = new long[count];
+		final AtomicInteger pending = new AtomicInteger(count);
+
+		if (count == 0) {
+			raiseDone(names, timings);
+			return;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(Threads, count)), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "AHLocaleWarmup");
+						t.setDaemon(true);
+						t.setPriority(Thread.MIN_PRIORITY);
+						return t;
+					}
+				});
+
+		for (int i = 0; i < count; i++) {
+			final int index = i;
+			final AHLocale loc = i < localeCount ? (AHLocale) Locales.Get(i) : null;
+			final String id = i < localeCount ? null : String.valueOf(TimeZoneIDs.Get(i - localeCount));
+			names[i] = loc != null ? loc.getISOCode() : id;
+
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					long start = System.nanoTime();
+					try {
+						if (loc != null) {
+							warmLocale(loc);
+						} else {
+							warmTimezone(id);
+						}
+					} catch (RuntimeException e) {
+						// Warmup is best effort, the data is loaded again on first use
+					} finally {
+						timings[index] = (System.nanoTime() - start) / 1000000;
+
+						// Done is raised even if a task failed with an Error
+						if (pending.decrementAndGet() == 0) {
+							executor.shutdown();
+							raiseDone(names, timings);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	private void raiseDone(String[] names, long[] timings) {
+		Map ret = new Map();
+		ret.Initialize();
+		for (int i = 0; i < names.length; i++) {
+			ret.Put(names[i], timings[i]);
+		}
+		ba.raiseEventFromDifferentThread(this, null, 0, eventName + "_done", false,
+				new Object[] { ret });
+	}
+
+	private static void warmLocale(AHLocale ahloc) {
+		Locale loc = ahloc.myLocale;
+		Date now = new Date();
+
+		// Fills the AHLocale caches
+		ahloc.getMonths();
+		ahloc.getDisplayName();
+		ahloc.getEnglishName();
+		ahloc.getCurrencyCode();
+
+		// Fills the AHDateTime pattern cache and loads the formatter classes
+		for (int style = SimpleDateFormat.FULL; style <= SimpleDateFormat.SHORT; style++) {
+			AHDateTime.defaultPattern(style, AHDateTime.NO_STYLE, loc);
+			AHDateTime.defaultPattern(AHDateTime.NO_STYLE, style, loc);
+			AHDateTime.defaultPattern(style, style, loc);
+		}
+		new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", loc).format(now);
+
+		NumberFormat.getInstance(loc).format(1234.56);
+		NumberFormat.getCurrencyInstance(loc).format(1234.56);
+		NumberFormat.getPercentInstance(loc).format(0.5);
+	}
+
+	// Goes through AHTimeZone so its caches are filled: the interned zone, the
+	// shared transition table and the display names
+	private static void warmTimezone(String id) {
+		AHTimezone zone = new AHTimezone();
+		zone.Initialize2(id);
+		zone.GetOffset(System.currentTimeMillis());
+		zone.GetDisplayName(false, TimeZone.LONG);
+		zone.GetDisplayName(true, TimeZone.SHORT);
+	}
+}
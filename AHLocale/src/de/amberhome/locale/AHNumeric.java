@@ -22,6 +22,10 @@ import anywheresoftware.b4a.keywords.Common;
 @ShortName("AHNumeric")
 public class AHNumeric {
 	NumberFormat mNumberFormat;
+	private java.util.Locale locale;
+	// Resolved on first use while AHLocaleMetrics is enabled
+	private AHLocaleMetrics.Metric formatMetric;
+	private AHLocaleMetrics.Metric parseMetric;
 
 	public AHNumeric() {
 
@@ -31,70 +35,112 @@ public class AHNumeric {
 	 * Initializes a standard NumberFormat object with the standard locale
 	 */
 	public void Initialize() {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getInstance();
+		initialized(java.util.Locale.getDefault(), start);
 	}
 
 	/**
 	 * Initializes a standard NumberFormat object with the given locale.
 	 */
 	public void Initialize2(AHLocale Locale) {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getInstance(Locale.myLocale);
+		initialized(Locale.myLocale, start);
 	}
 
 	/**
 	 * Initializes a standard NumberFormat object with the standard locale
 	 */
 	public void InitializeNumber() {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getNumberInstance();
+		initialized(java.util.Locale.getDefault(), start);
 	}
 
 	/**
 	 * Initializes a standard NumberFormat object with the given locale.
 	 */
 	public void InitializeNumber2(AHLocale Locale) {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getNumberInstance(Locale.myLocale);
+		initialized(Locale.myLocale, start);
 	}
 
 	/**
 	 * Initializes an integer NumberFormat object with the standard locale
 	 */
 	public void InitializeInteger() {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getIntegerInstance();
+		initialized(java.util.Locale.getDefault(), start);
 	}
 
 	/**
 	 * Initializes an integer NumberFormat object with the given locale.
 	 */
 	public void InitializeInteger2(AHLocale Locale) {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getIntegerInstance(Locale.myLocale);
+		initialized(Locale.myLocale, start);
 	}
 
 	/**
 	 * Initializes a currency NumberFormat object with the standard locale
 	 */
 	public void InitializeCurrency() {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getCurrencyInstance();
+		initialized(java.util.Locale.getDefault(), start);
 	}
 
 	/**
 	 * Initializes a currency NumberFormat object with the given locale.
 	 */
 	public void InitializeCurrency2(AHLocale Locale) {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getCurrencyInstance(Locale.myLocale);
+		initialized(Locale.myLocale, start);
 	}
 
 	/**
 	 * Initializes a percent NumberFormat object with the standard locale
 	 */
 	public void InitializePercent() {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getPercentInstance();
+		initialized(java.util.Locale.getDefault(), start);
 	}
 
 	/**
 	 * Initializes a percent NumberFormat object with the given locale.
 	 */
 	public void InitializePercent2(AHLocale Locale) {
+		long start = System.nanoTime();
 		mNumberFormat = NumberFormat.getPercentInstance(Locale.myLocale);
+		initialized(Locale.myLocale, start);
+	}
+
+	private void initialized(java.util.Locale locale, long start) {
+		this.locale = locale;
+		formatMetric = null;
+		parseMetric = null;
+		if (AHLocaleMetrics.enabled) {
+			AHLocaleMetrics.metric(AHLocaleMetrics.NUMERIC_INITIALIZE, metricPattern(), locale)
+					.measured(start);
+		}
+	}
+
+	private String metricPattern() {
+		return mNumberFormat instanceof DecimalFormat ? ((DecimalFormat) mNumberFormat).toPattern()
+				: mNumberFormat.getClass().getName();
+	}
+
+	/**
+	 * Returns a copy of the formatter for use on another thread.
+	 */
+	NumberFormat copyFormat() {
+		return (NumberFormat) mNumberFormat.clone();
 	}
 
 	/**
@@ -146,7 +192,9 @@ public class AHNumeric {
 	 */
 	public void setPattern(String Pattern) {
 		if (mNumberFormat instanceof DecimalFormat) {
+			long start = System.nanoTime();
 			((DecimalFormat) mNumberFormat).applyPattern(Pattern);
+			initialized(locale, start);
 		} else
 			Common.Log("Not a DecimalFormat");
 	}
@@ -165,14 +213,39 @@ public class AHNumeric {
 	 * ParseException if the format of the string is not correct.
 	 */
 	public Number Parse(String Value) throws ParseException {
-		return mNumberFormat.parse(Value);
+		if (!AHLocaleMetrics.enabled) {
+			return mNumberFormat.parse(Value);
+		}
+		AHLocaleMetrics.Metric m = parseMetric;
+		if (m == null) {
+			m = parseMetric = AHLocaleMetrics.metric(AHLocaleMetrics.NUMERIC_PARSE, metricPattern(), locale);
+		}
+		long start = m.begin();
+		try {
+			Number ret = mNumberFormat.parse(Value);
+			m.end(start);
+			return ret;
+		} catch (ParseException e) {
+			m.failed(start);
+			throw e;
+		}
 	}
 
 	/**
 	 * Format the number to a string using the pattern and rules of this object.
 	 */
 	public String Format(double Value) {
-		return mNumberFormat.format(Value);
+		if (!AHLocaleMetrics.enabled) {
+			return mNumberFormat.format(Value);
+		}
+		AHLocaleMetrics.Metric m = formatMetric;
+		if (m == null) {
+			m = formatMetric = AHLocaleMetrics.metric(AHLocaleMetrics.NUMERIC_FORMAT, metricPattern(), locale);
+		}
+		long start = m.begin();
+		String ret = mNumberFormat.format(Value);
+		m.end(start);
+		return ret;
 	}
 
 }
@@ -1,11 +1,33 @@
 package de.amberhome.locale;
 
-import java.util.Date;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import anywheresoftware.b4a.BA.Hide;
 import anywheresoftware.b4a.BA.ShortName;
 import anywheresoftware.b4a.objects.collections.List;
+import anywheresoftware.b4a.objects.collections.Map;
+import anywheresoftware.b4a.objects.streams.File;
 
 /**
  * With the AHTimezone object you can get information about device timezones.
@@ -14,7 +36,55 @@ import anywheresoftware.b4a.objects.collections.List;
 @ShortName("AHTimeZone")
 public class AHTimezone {
 	
+	// The TimeZone object is never modified. Objects for a timezone ID are
+	// interned and shared, setID() and setRawOffset() create a new object.
 	java.util.TimeZone tz;
+
+	// Transition table of tz, built on first use and rebuilt when the window
+	// changes. Only interned zones share the cached tables.
+	private ZoneTransitions transitions;
+	private int transitionsVersion;
+	private boolean shareTransitions;
+	// Resolved on first use while AHLocaleMetrics is enabled
+	private AHLocaleMetrics.Metric offsetMetric;
+
+	private static final ConcurrentHashMap<String, TimeZone> zoneCache = new ConcurrentHashMap<String, TimeZone>();
+
+	/**
+	 * Returns the shared TimeZone object for the given ID. It must not be modified.
+	 */
+	static TimeZone internZone(String id) {
+		TimeZone zone = zoneCache.get(id);
+		if (zone == null) {
+			zone = compiledZones.get(id);
+			if (zone == null) {
+				zone = TimeZone.getTimeZone(id);
+			}
+			TimeZone existing = zoneCache.putIfAbsent(id, zone);
+			if (existing != null) {
+				zone = existing;
+			}
+		}
+		return zone;
+	}
+
+	/**
+	 * Returns the shared TimeZone object of the current default timezone. A
+	 * custom default zone with an unknown ID (for example a SimpleTimeZone set
+	 * with TimeZone.setDefault()) is returned as it is.
+	 */
+	static TimeZone defaultZone() {
+		TimeZone zone = TimeZone.getDefault();
+		TimeZone interned = internZone(zone.getID());
+		// Unknown IDs give GMT
+		return interned.getID().equals(zone.getID()) ? interned : zone;
+	}
+
+	private static volatile int windowStartYear = new GregorianCalendar().get(Calendar.YEAR) - 2;
+	private static volatile int windowEndYear = windowStartYear + 10;
+	// Incremented by SetTransitionWindow() so existing objects drop their tables
+	private static volatile int windowVersion;
+	private static final ConcurrentHashMap<String, ZoneTransitions> transitionCache = new ConcurrentHashMap<String, ZoneTransitions>();
 	
 	public int STYLE_SHORT = TimeZone.SHORT;
 	public int STYLE_LONG = TimeZone.LONG;
@@ -27,7 +97,9 @@ public class AHTimezone {
 	 * Initialize a AHTimeZone object with default timezone
 	 */
 	public void Initialize() {
-		tz = TimeZone.getDefault();
+		TimeZone zone = defaultZone();
+		// Custom default zones must not share the tables of their ID
+		setZone(zone, zone == internZone(zone.getID()));
 	}
 	
 	/**
@@ -36,12 +108,224 @@ public class AHTimezone {
 	 * ID - TimeZone ID like "Europe/Berlin"
 	 */
 	public void Initialize2(String ID) {
-		tz = TimeZone.getTimeZone(ID);
+		setZone(internZone(ID), true);
 	}
 	
+	/**
+	 * Immutable catalog of the available timezone IDs with indexes for prefix
+	 * and region search. Built once and shared by all AHTimeZone objects.
+	 */
+	private static final class ZoneCatalog {
+		// IDs in the order of TimeZone.getAvailableIDs()
+		final String[] ids;
+		// Lower case IDs and city names (part after the last '/'), each sorted,
+		// with the index of the ID they belong to
+		final String[] lowerIds;
+		final int[] lowerIdIndex;
+		final String[] lowerCities;
+		final int[] lowerCityIndex;
+		final HashMap<String, String[]> byRegion = new HashMap<String, String[]>();
+		final String[] regions;
+		private volatile int[] rawOffsets;
+
+		ZoneCatalog(String[] ids) {
+			this.ids = ids;
+
+			String[] cities = new String[ids.length];
+			HashMap<String, ArrayList<String>> regionLists = new HashMap<String, ArrayList<String>>();
+			ArrayList<String> regionNames = new ArrayList<String>();
+			for (int i = 0; i < ids.length; i++) {
+				cities[i] = ids[i].substring(ids[i].lastIndexOf('/') + 1);
+
+				int slash = ids[i].indexOf('/');
+				if (slash > 0) {
+					String region = ids[i].substring(0, slash);
+					ArrayList<String> list = regionLists.get(region);
+					if (list == null) {
+						list = new ArrayList<String>();
+						regionLists.put(region, list);
+						regionNames.add(region);
+					}
+					list.add(ids[i]);
+				}
+			}
+			for (String region : regionNames) {
+				ArrayList<String> list = regionLists.get(region);
+				byRegion.put(region, list.toArray(new String[list.size()]));
+			}
+			regions = regionNames.toArray(new String[regionNames.size()]);
+
+			lowerIdIndex = sortedIndex(ids);
+			lowerIds = lowerCase(ids, lowerIdIndex);
+			lowerCityIndex = sortedIndex(cities);
+			lowerCities = lowerCase(cities, lowerCityIndex);
+		}
+
+		private static int[] sortedIndex(final String[] values) {
+			Integer[] index = new Integer[values.length];
+			for (int i = 0; i < index.length; i++) {
+				index[i] = i;
+			}
+			Arrays.sort(index, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer lhs, Integer rhs) {
+					return values[lhs].toLowerCase(Locale.US).compareTo(values[rhs].toLowerCase(Locale.US));
+				}
+			});
+
+			int[] ret = new int[index.length];
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = index[i];
+			}
+			return ret;
+		}
+
+		private static String[] lowerCase(String[] values, int[] index) {
+			String[] ret = new String[values.length];
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = values[index[i]].toLowerCase(Locale.US);
+			}
+			return ret;
+		}
+
+		/**
+		 * Raw offsets of all IDs. Calculated on first use because it needs the
+		 * rules of every zone. Compiled zones use their own rules.
+		 */
+		int[] rawOffsets() {
+			int[] offsets = rawOffsets;
+			if (offsets == null) {
+				offsets = new int[ids.length];
+				for (int i = 0; i < ids.length; i++) {
+					offsets[i] = internZone(ids[i]).getRawOffset();
+				}
+				rawOffsets = offsets;
+			}
+			return offsets;
+		}
+
+		/**
+		 * Marks all IDs where the sorted key starts with prefix.
+		 */
+		static void markPrefix(String[] sorted, int[] index, String prefix, boolean[] marks) {
+			int pos = Arrays.binarySearch(sorted, prefix);
+			if (pos < 0) {
+				pos = -pos - 1;
+			}
+			while (pos < sorted.length && sorted[pos].startsWith(prefix)) {
+				marks[index[pos]] = true;
+				pos++;
+			}
+		}
+
+		List search(String prefix, boolean useOffset, int rawOffset) {
+			String lower = prefix.toLowerCase(Locale.US);
+			boolean[] marks = new boolean[ids.length];
+			markPrefix(lowerIds, lowerIdIndex, lower, marks);
+			markPrefix(lowerCities, lowerCityIndex, lower, marks);
+
+			int[] offsets = useOffset ? rawOffsets() : null;
+
+			List ret = new List();
+			ret.Initialize();
+			for (int i = 0; i < ids.length; i++) {
+				if (marks[i] && (offsets == null || offsets[i] == rawOffset)) {
+					ret.Add(ids[i]);
+				}
+			}
+			return ret;
+		}
+	}
+
+	private static volatile ZoneCatalog catalog;
+
+	private static ZoneCatalog catalog() {
+		ZoneCatalog cat = catalog;
+		if (cat == null) {
+			cat = new ZoneCatalog(TimeZone.getAvailableIDs());
+			catalog = cat;
+		}
+		return cat;
+	}
+
+	static String[] availableIds() {
+		return catalog().ids;
+	}
+
+	static void preloadAvailableIds(String[] ids) {
+		catalog = new ZoneCatalog(ids);
+	}
+
+	private static List toList(String[] values) {
+		List ret = new List();
+		ret.Initialize();
+
+		if (values != null) {
+			for (String value : values) {
+				ret.Add(value);
+			}
+		}
+
+		return ret;
+	}
+
 	@Hide
 	public void Initialize_internal(TimeZone timeZone) {
+		// Interned zones (like the ones AHDateTime uses) share the cached table
+		setZone(timeZone, zoneCache.get(timeZone.getID()) == timeZone);
+	}
+
+	private void setZone(TimeZone timeZone, boolean shared) {
 		tz = timeZone;
+		transitions = null;
+		shareTransitions = shared;
+		offsetMetric = null;
+	}
+
+	private ZoneTransitions transitions() {
+		ZoneTransitions ret = transitions;
+		int version = windowVersion;
+		if (ret == null || transitionsVersion != version) {
+			if (shareTransitions) {
+				ret = transitionCache.get(tz.getID());
+				if (ret == null) {
+					ret = ZoneTransitions.build(tz, windowStartYear, windowEndYear);
+					// Not cached if the window changed during the build
+					synchronized (transitionCache) {
+						if (windowVersion == version) {
+							transitionCache.put(tz.getID(), ret);
+						}
+					}
+				}
+			} else {
+				ret = ZoneTransitions.build(tz, windowStartYear, windowEndYear);
+			}
+			transitions = ret;
+			transitionsVersion = version;
+		}
+		return ret;
+	}
+
+	/**
+	 * Sets the range of years for which GetOffset() and InDaylightTime() use
+	 * precomputed transition tables. Outside of this range the slower timezone
+	 * rules are used.
+	 * 
+	 * The setting is global. It applies to all AHTimeZone and AHDateTime
+	 * objects, existing objects rebuild their tables on the next call.
+	 * 
+	 * Default is from two years before the current year for ten years.
+	 * 
+	 * StartYear - first year of the range
+	 * EndYear - first year after the range
+	 */
+	public static void SetTransitionWindow(int StartYear, int EndYear) {
+		synchronized (transitionCache) {
+			windowStartYear = StartYear;
+			windowEndYear = EndYear;
+			transitionCache.clear();
+			windowVersion++;
+		}
 	}
 	
 	/**
@@ -50,14 +334,44 @@ public class AHTimezone {
 	 * an AHTimeZone object with a different timezone
 	 */
 	public List getAvailableIds() {
-		List ret = new List();
-		ret.Initialize();
+		return toList(availableIds());
+	}
 
-		for (String id : TimeZone.getAvailableIDs()) {
-			ret.Add(id);
-		}
+	/**
+	 * Returns a list of the regions of the available timezone IDs like "Europe" or "America".
+	 */
+	public List getRegions() {
+		return toList(catalog().regions);
+	}
 
-		return ret;
+	/**
+	 * Returns a list of the available timezone IDs in the given region.
+	 * 
+	 * Region - Region like "Europe" or "America"
+	 */
+	public List GetIdsByRegion(String Region) {
+		return toList(catalog().byRegion.get(Region));
+	}
+
+	/**
+	 * Searches the available timezone IDs. Returns all IDs where either the ID
+	 * or the city name (the part after the last '/') starts with Prefix. The
+	 * search is not case sensitive.
+	 * 
+	 * Prefix - Text to search for like "Europe/B" or "ber"
+	 */
+	public List SearchIds(String Prefix) {
+		return catalog().search(Prefix, false, 0);
+	}
+
+	/**
+	 * Same as SearchIds() but returns only timezones with the given raw offset.
+	 * 
+	 * Prefix - Text to search for. Pass an empty string to get all IDs with this offset.
+	 * RawOffset - Offset from UTC in milliseconds without daylight savings
+	 */
+	public List SearchIds2(String Prefix, int RawOffset) {
+		return catalog().search(Prefix, true, RawOffset);
 	}
 	
 	/**
@@ -79,7 +393,7 @@ public class AHTimezone {
 	 * Style - AHTimeZone.SHORT or AHTimeZone.LONG format
 	 */
 	public String GetDisplayName(boolean DaylightTime, int Style) {
-		return tz.getDisplayName(DaylightTime, Style);
+		return displayName(tz, DaylightTime, Style, Locale.getDefault());
 	}
 	
 	/**
@@ -90,39 +404,99 @@ public class AHTimezone {
 	 * Locale - a AHLocale object to set in which language you want the displayname 
 	 */
 	public String GetDisplayName2(boolean DaylightTime, int Style, AHLocale Locale) {
-		return tz.getDisplayName(DaylightTime, Style, Locale.myLocale);
+		return displayName(tz, DaylightTime, Style, Locale.myLocale);
+	}
+
+	/**
+	 * Returns the display names of all available timezones in one call. The
+	 * result is a Map with the timezone ID as key and the display name as value.
+	 * 
+	 * DaylightTime - Set to true if you want to have DST included into the name
+	 * Style - AHTimeZone.SHORT or AHTimeZone.LONG format
+	 * Locale - a AHLocale object to set in which language you want the displaynames
+	 */
+	public Map GetAllDisplayNames(boolean DaylightTime, int Style, AHLocale Locale) {
+		Map ret = new Map();
+		ret.Initialize();
+
+		// Interned zones so compiled zones are named by their own rules
+		for (String id : catalog().ids) {
+			ret.Put(id, displayName(internZone(id), DaylightTime, Style, Locale.myLocale));
+		}
+
+		return ret;
+	}
+
+	// "id|rawOffset|daylight|style|locale" -> display name, shared by all objects.
+	// The raw offset is part of the key because zones with a custom ID are
+	// named after their offset.
+	private static final ConcurrentHashMap<String, String> displayNameCache = new ConcurrentHashMap<String, String>();
+
+	private static String displayNameKey(String id, int rawOffset, boolean daylight, int style, Locale loc) {
+		return id + "|" + rawOffset + "|" + daylight + "|" + style + "|" + loc;
+	}
+
+	private static String displayName(TimeZone zone, boolean daylight, int style, Locale loc) {
+		String key = displayNameKey(zone.getID(), zone.getRawOffset(), daylight, style, loc);
+		String name = displayNameCache.get(key);
+		if (name == null) {
+			name = zone.getDisplayName(daylight, style, loc);
+			displayNameCache.put(key, name);
+		}
+		return name;
 	}
 	
 	/**
 	 * Gets or sets the timezone ID as String for this timezone
+	 * 
+	 * Setting the ID only renames this timezone, the rules stay the same. Other
+	 * AHTimeZone or AHDateTime objects using the same timezone are not affected.
 	 */
 	public String getID() {
 		return tz.getID();
 	}
 	
 	public void setID(String ID) {
-		tz.setID(ID);
+		TimeZone zone = (TimeZone) tz.clone();
+		zone.setID(ID);
+		setZone(zone, false);
 	}
 	
 	/**
 	 * Returns the offset in milliseconds from UTC for this time zone at time.
 	 * The offset includes daylight savings time if the specified date is within the daylight savings time period.
 	 * 
+	 * Inside the transition window (see SetTransitionWindow()) this is a fast table lookup.
+	 * 
 	 * Date - Date for which you want to have the info
 	 */
 	public long GetOffset(long Date) {
-		return tz.getOffset(Date);
+		if (!AHLocaleMetrics.enabled) {
+			return transitions().getOffset(Date);
+		}
+		AHLocaleMetrics.Metric m = offsetMetric;
+		if (m == null) {
+			m = offsetMetric = AHLocaleMetrics.metric(AHLocaleMetrics.TIMEZONE_GETOFFSET, tz.getID(), null);
+		}
+		long start = m.begin();
+		long ret = transitions().getOffset(Date);
+		m.end(start);
+		return ret;
 	}
 	
 	/**
 	 * Sets or gets the Raw offset for this timezone
+	 * 
+	 * Other AHTimeZone or AHDateTime objects using the same timezone are not affected.
 	 */
 	public long getRawOffset() {
 		return tz.getRawOffset();
 	}
 	
 	public void setRawOffset(int Offset) {
-		tz.setRawOffset(Offset);
+		TimeZone zone = (TimeZone) tz.clone();
+		zone.setRawOffset(Offset);
+		setZone(zone, false);
 	}
 	
 	/**
@@ -131,8 +505,323 @@ public class AHTimezone {
 	 * Date - Date for which you want to get the info
 	 */
 	public boolean InDaylightTime(long Date) {
-		Date dt = new Date(Date);
-		
-		return tz.inDaylightTime(dt);
+		return transitions().inDaylightTime(Date);
+	}
+
+	//
+	// Compiled zone data
+	//
+
+	private static final int BUNDLE_MAGIC = 0x41485A42; // "AHZB"
+	private static final int BUNDLE_VERSION = 1;
+
+	// Zones loaded with LoadZoneFile() or LoadZoneBundle(). They replace the
+	// platform rules for their IDs.
+	private static final ConcurrentHashMap<String, TimeZone> compiledZones = new ConcurrentHashMap<String, TimeZone>();
+
+	private static void registerZones(java.util.Map<String, TimeZone> zones) {
+		compiledZones.putAll(zones);
+		for (String id : zones.keySet()) {
+			zoneCache.remove(id);
+			transitionCache.remove(id);
+		}
+
+		// Zones that are missing on the device become available too
+		LinkedHashSet<String> ids = new LinkedHashSet<String>(Arrays.asList(availableIds()));
+		ids.addAll(zones.keySet());
+		if (ids.size() != availableIds().length) {
+			preloadAvailableIds(ids.toArray(new String[ids.size()]));
+		} else {
+			// The raw offsets of the replaced zones may have changed
+			catalog().rawOffsets = null;
+		}
+	}
+
+	private static byte[] readAll(InputStream in, int length) throws IOException {
+		byte[] data = new byte[length];
+		new DataInputStream(in).readFully(data);
+		return data;
+	}
+
+	/**
+	 * Loads the rules of a timezone from a compiled tzdata file (TZif format, like the
+	 * files in /usr/share/zoneinfo). AHTimeZone and AHDateTime objects that are
+	 * initialized with this ID afterwards use these rules instead of the rules
+	 * of the device.
+	 * 
+	 * ID - TimeZone ID like "Europe/Berlin"
+	 */
+	public void LoadZoneFile(String Dir, String FileName, String ID) throws IOException {
+		File.InputStreamWrapper in = File.OpenInput(Dir, FileName);
+		try {
+			java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.getObject().read(buffer)) > 0) {
+				out.write(buffer, 0, count);
+			}
+
+			HashMap<String, TimeZone> zones = new HashMap<String, TimeZone>();
+			zones.put(ID, CompiledTimeZone.parse(ID, out.toByteArray()));
+			registerZones(zones);
+		} finally {
+			in.Close();
+		}
+	}
+
+	/**
+	 * Loads all timezones of a zone bundle written with WriteZoneBundle(). The
+	 * bundle can be shipped in the assets folder. Returns the number of loaded zones.
+	 */
+	public int LoadZoneBundle(String Dir, String FileName) throws IOException {
+		File.InputStreamWrapper in = File.OpenInput(Dir, FileName);
+		try {
+			DataInputStream data = new DataInputStream(new java.io.BufferedInputStream(in.getObject()));
+			if (data.readInt() != BUNDLE_MAGIC || data.readInt() != BUNDLE_VERSION) {
+				throw new IOException("Not a zone bundle: " + FileName);
+			}
+
+			int count = data.readInt();
+			HashMap<String, TimeZone> zones = new HashMap<String, TimeZone>(count * 2);
+			for (int i = 0; i < count; i++) {
+				String id = data.readUTF();
+				zones.put(id, CompiledTimeZone.parse(id, readAll(data, data.readInt())));
+			}
+			registerZones(zones);
+			return count;
+		} finally {
+			in.Close();
+		}
+	}
+
+	/**
+	 * Packs compiled tzdata files into one zone bundle file for LoadZoneBundle().
+	 * Call this on a machine with current tzdata, for example with
+	 * ZoneInfoDir = "/usr/share/zoneinfo". The bundle is first written to a
+	 * temporary file and then renamed.
+	 * 
+	 * ZoneInfoDir - Directory with the TZif files in the tzdata layout
+	 * IDs - List of timezone IDs to include
+	 */
+	public void WriteZoneBundle(String ZoneInfoDir, List IDs, String Dir, String FileName) throws IOException {
+		java.io.File target = new java.io.File(Dir, FileName);
+		java.io.File temp = new java.io.File(Dir, FileName + ".tmp");
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(temp)));
+		boolean written = false;
+		try {
+			out.writeInt(BUNDLE_MAGIC);
+			out.writeInt(BUNDLE_VERSION);
+			out.writeInt(IDs.getSize());
+			for (int i = 0; i < IDs.getSize(); i++) {
+				String id = String.valueOf(IDs.Get(i));
+				java.io.File file = new java.io.File(ZoneInfoDir, id);
+				FileInputStream in = new FileInputStream(file);
+				try {
+					byte[] data = readAll(in, (int) file.length());
+					// Fail early on files that can not be loaded again
+					CompiledTimeZone.parse(id, data);
+					out.writeUTF(id);
+					out.writeInt(data.length);
+					out.write(data);
+				} finally {
+					in.close();
+				}
+			}
+			written = true;
+		} finally {
+			out.close();
+			if (!written) {
+				temp.delete();
+			}
+		}
+
+		if (!temp.renameTo(target)) {
+			if (!target.delete() || !temp.renameTo(target)) {
+				temp.delete();
+				throw new IOException("Unable to replace " + target);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this timezone uses rules loaded with LoadZoneFile() or
+	 * LoadZoneBundle() instead of the rules of the device.
+	 */
+	public boolean getIsCompiled() {
+		return tz instanceof CompiledTimeZone;
+	}
+
+	//
+	// Batch conversion
+	//
+
+	private static final long DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+	private static final int PARALLEL_THRESHOLD = 50000;
+
+	/**
+	 * Converts many UTC tick values to local date and time fields of this
+	 * timezone at once. The result arrays must have at least the size of Ticks.
+	 * Pass Null for fields you don't need.
+	 * 
+	 * Months are 1 to 12 like in the B4A DateTime object.
+	 * 
+	 * Large arrays are processed on multiple threads.
+	 */
+	public void ToLocalFields(final long[] Ticks, final int[] Years, final int[] Months,
+			final int[] Days, final int[] Hours, final int[] Minutes) {
+		checkLength(Ticks, Years, "Years");
+		checkLength(Ticks, Months, "Months");
+		checkLength(Ticks, Days, "Days");
+		checkLength(Ticks, Hours, "Hours");
+		checkLength(Ticks, Minutes, "Minutes");
+		final ZoneTransitions zone = transitions();
+		runChunked(Ticks.length, new Chunk() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					long local = Ticks[i] + zone.getOffset(Ticks[i]);
+					long epochDay = floorDiv(local, DAY_IN_MILLIS);
+
+					if (Years != null || Months != null || Days != null) {
+						civilFromDays(epochDay, i, Years, Months, Days);
+					}
+
+					int minuteOfDay = (int) ((local - epochDay * DAY_IN_MILLIS) / 60000);
+					if (Hours != null) {
+						Hours[i] = minuteOfDay / 60;
+					}
+					if (Minutes != null) {
+						Minutes[i] = minuteOfDay % 60;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Converts many UTC tick values to the local day number of this timezone.
+	 * The day number is the number of days since 1970-01-01 which makes it easy
+	 * to group events by day.
+	 * 
+	 * EpochDays - Result array, must have at least the size of Ticks
+	 */
+	public void ToLocalEpochDays(final long[] Ticks, final int[] EpochDays) {
+		if (EpochDays == null) {
+			throw new IllegalArgumentException("EpochDays must not be Null");
+		}
+		checkLength(Ticks, EpochDays, "EpochDays");
+		final ZoneTransitions zone = transitions();
+		runChunked(Ticks.length, new Chunk() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					EpochDays[i] = (int) floorDiv(Ticks[i] + zone.getOffset(Ticks[i]), DAY_IN_MILLIS);
+				}
+			}
+		});
+	}
+
+	private static void checkLength(long[] ticks, int[] result, String name) {
+		if (result != null && result.length < ticks.length) {
+			throw new IllegalArgumentException(name + " is smaller than Ticks");
+		}
+	}
+
+	private interface Chunk {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Shared pool for the batch conversions, created on first use (lazy
+	 * holder idiom).
+	 */
+	private static final class ConvertExecutor {
+		static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+		static final ExecutorService INSTANCE = Executors.newFixedThreadPool(THREADS,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "AHTimeZoneConvert");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Runs the chunks on the shared pool, the first chunk runs on the calling
+	 * thread. Exceptions of the workers are rethrown.
+	 */
+	private static void runChunked(int length, final Chunk chunk) {
+		if (length < PARALLEL_THRESHOLD || ConvertExecutor.THREADS == 1) {
+			chunk.run(0, length);
+			return;
+		}
+
+		int threads = ConvertExecutor.THREADS;
+		int size = (length + threads - 1) / threads;
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>(threads);
+		for (int t = 1; t < threads; t++) {
+			final int from = t * size;
+			final int to = Math.min(length, from + size);
+			if (from >= to) {
+				break;
+			}
+			futures.add(ConvertExecutor.INSTANCE.submit(new Runnable() {
+				@Override
+				public void run() {
+					chunk.run(from, to);
+				}
+			}));
+		}
+
+		chunk.run(0, Math.min(length, size));
+
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while converting");
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			q--;
+		}
+		return q;
+	}
+
+	/**
+	 * Converts a day number since 1970-01-01 to year, month and day in the
+	 * proleptic gregorian calendar (algorithm by Howard Hinnant).
+	 */
+	private static void civilFromDays(long epochDay, int i, int[] years, int[] months, int[] days) {
+		long z = epochDay + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int d = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int y = (int) (yoe + era * 400 + (m <= 2 ? 1 : 0));
+
+		if (years != null) {
+			years[i] = y;
+		}
+		if (months != null) {
+			months[i] = m;
+		}
+		if (days != null) {
+			days[i] = d;
+		}
 	}
 }
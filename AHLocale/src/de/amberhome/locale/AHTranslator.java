@@ -1,6 +1,14 @@
 package de.amberhome.locale;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 
 import anywheresoftware.b4a.BA.ShortName;
 import anywheresoftware.b4a.objects.collections.List;
@@ -23,6 +31,9 @@ import anywheresoftware.b4a.objects.streams.File;
  * in the language file. When you call GetText() with a string that is not in
  * the translation file then it will be added to the missing translations Map.
  * 
+ * For missing texts the translator can find the most similar text in the
+ * translation file, see FindSimilarKey() and FuzzyFallback.
+ * 
  */
 @ShortName("AHTranslator")
 public class AHTranslator {
@@ -35,6 +46,41 @@ public class AHTranslator {
 	private String currentFile;
 	private String currentExtension = ".lng";
 	private String defaultLanguage = "";
+
+	// Incremental write state. Entries of writtenTranslationMap and
+	// writtenMissingMap with an index below the counts have already been
+	// written to the files, the keys are the last written keys. A file is
+	// only recorded when it was actually written. Reset whenever the Maps or
+	// the language change.
+	private String writtenTranslationFile;
+	private String writtenMissingFile;
+	private Map writtenTranslationMap;
+	private Map writtenMissingMap;
+	private int writtenTranslationCount;
+	private int writtenMissingCount;
+	private Object writtenTranslationKey;
+	private Object writtenMissingKey;
+
+	// Trigram index of the translation keys. Built on first use and rebuilt
+	// when the translation Map is replaced or its size changes.
+	private TrigramIndex keyIndex;
+	private Map indexedMap;
+	private int indexedSize;
+	// Missing text -> most similar key or "" if there is none. Bounded, the
+	// number of distinct missing texts of a long running app is not.
+	private static final int SIMILAR_CACHE_SIZE = 256;
+	private final LinkedHashMap<String, String> similarKeyCache = new LinkedHashMap<String, String>(
+			SIMILAR_CACHE_SIZE * 2, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(java.util.Map.Entry<String, String> eldest) {
+			return size() > SIMILAR_CACHE_SIZE;
+		}
+	};
+	private double minSimilarity = 0.7;
+	private boolean fuzzyFallback;
+	private boolean annotateMissing;
 	//private String currentDir;
 
 	public AHTranslator() {
@@ -75,6 +121,8 @@ public class AHTranslator {
 		missingTranslation.Initialize();
 		translation.Clear();
 		missingTranslation.Clear();
+		resetWriteState();
+		resetKeyIndex();
 
 		if (defaultLanguage != null & defaultLanguage != "") {
 			LoadDefaultTranslations(dir, basename);
@@ -133,18 +181,258 @@ public class AHTranslator {
 	/**
 	 * Writes two files to the specified dir. The current translation Map is
 	 * written to [filename]_[language].lng and the missing translation Map is
-	 * written to [filename]_miss_[language].lng 
+	 * written to [filename]_miss_[language].lng
+	 * 
+	 * The files are first written to a temporary file, synced to the disk and
+	 * then renamed, so an interrupted write never leaves a truncated language
+	 * file.
 	 */
 	public void WriteTranslation(String dir, String filename)
 			throws IOException {
+		WriteTranslation2(dir, filename, false);
+	}
+
+	/**
+	 * Same as WriteTranslation() but if Sorted is true the entries are written
+	 * sorted by key. This makes the files easier to diff and to maintain.
+	 */
+	public void WriteTranslation2(String dir, String filename, boolean Sorted)
+			throws IOException {
+		writeTranslationFile(translationFile(dir, filename), Sorted);
+		writeMissingFile(missingFile(dir, filename), Sorted);
+	}
+
+	private void writeTranslationFile(java.io.File file, boolean sorted) throws IOException {
+		writtenTranslationFile = null;
 		if (translation.getSize() > 0) {
-			File.WriteMap(dir, filename + "_" + currentLanguage + currentExtension,
-					translation);
+			writeMapAtomic(file, translation, sorted, false);
+			writtenTranslationFile = file.getAbsolutePath();
+			writtenTranslationMap = translation;
+			writtenTranslationCount = translation.getSize();
+			writtenTranslationKey = translation.GetKeyAt(writtenTranslationCount - 1);
 		}
+	}
 
+	private void writeMissingFile(java.io.File file, boolean sorted) throws IOException {
+		writtenMissingFile = null;
 		if (missingTranslation.getSize() > 0) {
-			File.WriteMap(dir, filename + "_miss_" + currentLanguage + currentExtension,
-					missingTranslation);
+			writeMapAtomic(file, missingTranslation, sorted, annotateMissing);
+			writtenMissingFile = file.getAbsolutePath();
+			writtenMissingMap = missingTranslation;
+			writtenMissingCount = missingTranslation.getSize();
+			writtenMissingKey = missingTranslation.GetKeyAt(writtenMissingCount - 1);
+		}
+	}
+
+	private java.io.File translationFile(String dir, String filename) {
+		return new java.io.File(dir, filename + "_" + currentLanguage + currentExtension);
+	}
+
+	private java.io.File missingFile(String dir, String filename) {
+		return new java.io.File(dir, filename + "_miss_" + currentLanguage + currentExtension);
+	}
+
+	// Forces the next WriteTranslationDelta() to write the complete files
+	private void resetWriteState() {
+		writtenTranslationFile = null;
+		writtenMissingFile = null;
+		writtenTranslationMap = null;
+		writtenMissingMap = null;
+		writtenTranslationCount = 0;
+		writtenMissingCount = 0;
+		writtenTranslationKey = null;
+		writtenMissingKey = null;
+	}
+
+	/**
+	 * Returns true if the first count entries of map are still the entries
+	 * that were written to the file. Removing an entry moves the following
+	 * entries down, so the key at the last written index changes.
+	 */
+	private static boolean unchanged(java.io.File file, String writtenFile, Map map,
+			Map writtenMap, int count, Object lastKey) {
+		return file.getAbsolutePath().equals(writtenFile) && map == writtenMap
+				&& map.getSize() >= count && lastKey.equals(map.GetKeyAt(count - 1));
+	}
+
+	/**
+	 * Writes only the entries that were added since the last call to
+	 * WriteTranslation(), WriteTranslation2() or WriteTranslationDelta() to
+	 * the same files. The new entries are appended to the existing files.
+	 * 
+	 * If a file was not written before by this object, the object was
+	 * initialized again, the language or the Map changed or entries were
+	 * removed from the Map, the complete file is written like with
+	 * WriteTranslation(). Changed values of existing keys are not detected, use
+	 * WriteTranslation2() to compact the files from time to time.
+	 */
+	public void WriteTranslationDelta(String dir, String filename)
+			throws IOException {
+		java.io.File translationFile = translationFile(dir, filename);
+		if (unchanged(translationFile, writtenTranslationFile, translation,
+				writtenTranslationMap, writtenTranslationCount, writtenTranslationKey)) {
+			appendMap(translationFile, translation, writtenTranslationCount, false);
+			writtenTranslationCount = translation.getSize();
+			writtenTranslationKey = translation.GetKeyAt(writtenTranslationCount - 1);
+		} else {
+			writeTranslationFile(translationFile, false);
+		}
+
+		java.io.File missingFile = missingFile(dir, filename);
+		if (unchanged(missingFile, writtenMissingFile, missingTranslation,
+				writtenMissingMap, writtenMissingCount, writtenMissingKey)) {
+			appendMap(missingFile, missingTranslation, writtenMissingCount, annotateMissing);
+			writtenMissingCount = missingTranslation.getSize();
+			writtenMissingKey = missingTranslation.GetKeyAt(writtenMissingCount - 1);
+		} else {
+			writeMissingFile(missingFile, false);
+		}
+	}
+
+	private void writeMapAtomic(java.io.File target, Map map, boolean sorted,
+			boolean annotate) throws IOException {
+		java.io.File temp = new java.io.File(target.getPath() + ".tmp");
+
+		ArrayList<String> keys = new ArrayList<String>(map.getSize());
+		for (int i = 0; i < map.getSize(); i++) {
+			keys.add(String.valueOf(map.GetKeyAt(i)));
+		}
+		if (sorted) {
+			Collections.sort(keys);
+		}
+
+		boolean done = false;
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			Writer w = openWriter(out);
+			for (String key : keys) {
+				if (annotate) {
+					writeSuggestion(w, key);
+				}
+				writeEntry(w, key, String.valueOf(map.Get(key)));
+			}
+			// The data must be on the disk before the rename replaces the file
+			w.flush();
+			out.getFD().sync();
+			done = true;
+		} finally {
+			out.close();
+			if (!done) {
+				temp.delete();
+			}
+		}
+
+		// renameTo() does not replace an existing file on every platform
+		if (!temp.renameTo(target)) {
+			if (!target.delete() || !temp.renameTo(target)) {
+				temp.delete();
+				throw new IOException("Unable to replace " + target);
+			}
+		}
+	}
+
+	private void appendMap(java.io.File file, Map map, int from,
+			boolean annotate) throws IOException {
+		if (from >= map.getSize()) {
+			return;
+		}
+
+		// Build the complete delta first so it is appended with a single write
+		StringWriter delta = new StringWriter();
+		for (int i = from; i < map.getSize(); i++) {
+			if (annotate) {
+				writeSuggestion(delta, String.valueOf(map.GetKeyAt(i)));
+			}
+			writeEntry(delta, String.valueOf(map.GetKeyAt(i)), String.valueOf(map.GetValueAt(i)));
+		}
+
+		FileOutputStream out = new FileOutputStream(file, true);
+		try {
+			Writer w = openWriter(out);
+			w.write(delta.toString());
+			w.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+	}
+
+	private static Writer openWriter(FileOutputStream out) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(out, "ISO-8859-1"));
+	}
+
+	/**
+	 * Writes one properties file line. Escaping follows java.util.Properties
+	 * so the files can still be read with File.ReadMap().
+	 */
+	private static void writeEntry(Writer w, String key, String value)
+			throws IOException {
+		StringBuilder sb = new StringBuilder(key.length() + value.length() + 8);
+		escape(sb, key, true);
+		sb.append('=');
+		escape(sb, value, false);
+		sb.append('\n');
+		w.write(sb.toString());
+	}
+
+	/**
+	 * Writes a comment line with the most similar existing translation, if
+	 * there is one. Comments are ignored by File.ReadMap().
+	 */
+	private void writeSuggestion(Writer w, String text) throws IOException {
+		String key = similarKey(text);
+		if (key.length() == 0) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder("# Suggestion: ");
+		escape(sb, key, true);
+		sb.append('=');
+		escape(sb, String.valueOf(translation.Get(key)), false);
+		sb.append('\n');
+		w.write(sb.toString());
+	}
+
+	private static void escape(StringBuilder sb, String text, boolean isKey) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case ' ':
+				if (i == 0 || isKey) {
+					sb.append('\\');
+				}
+				sb.append(' ');
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\f':
+				sb.append("\\f");
+				break;
+			case '=':
+			case ':':
+			case '#':
+			case '!':
+			case '\\':
+				sb.append('\\').append(c);
+				break;
+			default:
+				if (c < 0x20 || c > 0x7e) {
+					sb.append("\\u");
+					String hex = Integer.toHexString(c).toUpperCase();
+					for (int j = hex.length(); j < 4; j++) {
+						sb.append('0');
+					}
+					sb.append(hex);
+				} else {
+					sb.append(c);
+				}
+			}
 		}
 	}
 
@@ -167,6 +455,13 @@ public class AHTranslator {
 				missingTranslation.Put(text, text);
 			}
 
+			if (fuzzyFallback) {
+				String key = similarKey(text);
+				String value = key.length() > 0 ? (String) translation.Get(key) : null;
+				if (value != null) {
+					return value;
+				}
+			}
 			return text;
 		}
 	}
@@ -195,6 +490,113 @@ public class AHTranslator {
 		return myText;
 	}
 
+	// Drops the index of the old translation keys
+	private void resetKeyIndex() {
+		keyIndex = null;
+		indexedMap = null;
+		indexedSize = 0;
+		similarKeyCache.clear();
+	}
+
+	private TrigramIndex keyIndex() {
+		if (keyIndex == null || indexedMap != translation || indexedSize != translation.getSize()) {
+			String[] keys = new String[translation.getSize()];
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = String.valueOf(translation.GetKeyAt(i));
+			}
+			keyIndex = TrigramIndex.build(keys);
+			indexedMap = translation;
+			indexedSize = keys.length;
+			similarKeyCache.clear();
+		}
+		return keyIndex;
+	}
+
+	// Most similar translation key or "", cached per text
+	private String similarKey(String text) {
+		TrigramIndex index = keyIndex();
+		String key = similarKeyCache.get(text);
+		if (key == null) {
+			int[] found = index.search(text, minSimilarity, 1, new double[1]);
+			key = found.length == 0 ? "" : index.texts[found[0]];
+			similarKeyCache.put(text, key);
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the key of the translation table that is most similar to Text or
+	 * an empty string if no key has a similarity of at least MinSimilarity.
+	 * 
+	 * Texts are compared by their character trigrams, ignoring case and
+	 * repeated whitespace. The index of the keys is built on the first call
+	 * and rebuilt when the translation Map changes.
+	 */
+	public String FindSimilarKey(String Text) {
+		return similarKey(Text);
+	}
+
+	/**
+	 * Returns a List with up to MaxCount keys of the translation table that
+	 * are similar to Text, the most similar key first.
+	 */
+	public List FindSimilarKeys(String Text, int MaxCount) {
+		TrigramIndex index = keyIndex();
+		int[] found = index.search(Text, minSimilarity, MaxCount, new double[Math.max(0, MaxCount)]);
+		List ret = new List();
+		ret.Initialize();
+		for (int i : found) {
+			ret.Add(index.texts[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * Sets or gets the minimum similarity (0 to 1) for FindSimilarKey(),
+	 * FindSimilarKeys(), FuzzyFallback and the suggestions in the missing
+	 * translation file. 1 means the texts only differ in case or whitespace.
+	 * The default is 0.7.
+	 */
+	public double getMinSimilarity() {
+		return minSimilarity;
+	}
+
+	public void setMinSimilarity(double Similarity) {
+		minSimilarity = Similarity;
+		similarKeyCache.clear();
+	}
+
+	/**
+	 * If set to true GetText() returns the translation of the most similar key
+	 * (see FindSimilarKey()) for texts that are not in the translation table.
+	 * The text is still added to the missing translations. Default is false.
+	 */
+	public boolean getFuzzyFallback() {
+		return fuzzyFallback;
+	}
+
+	public void setFuzzyFallback(boolean Enabled) {
+		fuzzyFallback = Enabled;
+	}
+
+	/**
+	 * If set to true WriteTranslation() adds a comment with the most similar
+	 * existing translation above each entry of the missing translation file,
+	 * like:
+	 * 
+	 * # Suggestion: Save file=Datei speichern
+	 * Save the file=Save the file
+	 * 
+	 * Default is false.
+	 */
+	public boolean getAnnotateMissing() {
+		return annotateMissing;
+	}
+
+	public void setAnnotateMissing(boolean Enabled) {
+		annotateMissing = Enabled;
+	}
+
 	/**
 	 * Returns a Map object with the current translations
 	 */
@@ -207,6 +609,8 @@ public class AHTranslator {
 	 */
 	public void setTranslationMap(Map transmap) {
 		translation = transmap;
+		resetWriteState();
+		resetKeyIndex();
 	}
 
 	/**
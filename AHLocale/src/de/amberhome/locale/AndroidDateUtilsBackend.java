@@ -0,0 +1,70 @@
+package de.amberhome.locale;
+
+import java.util.Formatter;
+import java.util.Locale;
+
+import android.text.format.DateFormat;
+import android.text.format.DateUtils;
+import anywheresoftware.b4a.BA;
+
+/**
+ * DateUtilsBackend that uses android.text.format.DateUtils. This is the
+ * default on Android devices.
+ */
+final class AndroidDateUtilsBackend implements DateUtilsBackend {
+
+	/**
+	 * Formatter and its StringBuilder, reused for all range formatting on a thread.
+	 */
+	private static final class RangeFormatter {
+		final StringBuilder sb = new StringBuilder(64);
+		final Formatter formatter = new Formatter(sb, Locale.getDefault());
+		final Locale locale = Locale.getDefault();
+	}
+
+	private static final ThreadLocal<RangeFormatter> rangeFormatter = new ThreadLocal<RangeFormatter>();
+
+	private static RangeFormatter rangeFormatter() {
+		RangeFormatter ret = rangeFormatter.get();
+		if (ret == null || !ret.locale.equals(Locale.getDefault())) {
+			ret = new RangeFormatter();
+			rangeFormatter.set(ret);
+		}
+		return ret;
+	}
+
+	@Override
+	public String formatDateTime(BA ba, long millis, int flags) {
+		return DateUtils.formatDateTime(ba.context, millis, flags);
+	}
+
+	@Override
+	public String formatDateRange(BA ba, long startMillis, long endMillis, int flags) {
+		RangeFormatter f = rangeFormatter();
+		f.sb.setLength(0);
+		return DateUtils.formatDateRange(ba.context, f.formatter, startMillis, endMillis,
+				flags).toString();
+	}
+
+	@Override
+	public String formatElapsedTime(long elapsedSeconds) {
+		return DateUtils.formatElapsedTime(elapsedSeconds);
+	}
+
+	@Override
+	public CharSequence getRelativeTimeSpanString(long time, long now, long minResolution, int flags) {
+		return DateUtils.getRelativeTimeSpanString(time, now, minResolution, flags);
+	}
+
+	@Override
+	public CharSequence getRelativeDateTimeString(BA ba, long time, long minResolution,
+			long transitionResolution, int flags) {
+		return DateUtils.getRelativeDateTimeString(ba.context, time, minResolution,
+				transitionResolution, flags);
+	}
+
+	@Override
+	public boolean is24HourFormat(BA ba) {
+		return DateFormat.is24HourFormat(ba.context);
+	}
+}
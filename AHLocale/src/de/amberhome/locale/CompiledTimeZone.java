@@ -0,0 +1,434 @@
+package de.amberhome.locale;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+/**
+ * A TimeZone that answers all offset and DST questions from compiled tzdata
+ * (the TZif format written by zic, RFC 8536) instead of the rules of the
+ * platform.
+ *
+ * Times before the first transition use local time type 0. Times after the
+ * last transition use the POSIX TZ string of the file (version 2 and later)
+ * if it can be expressed as a SimpleTimeZone, else the last local time type.
+ *
+ * getRawOffset() and getDSTSavings() return the current values, like every
+ * TimeZone. GregorianCalendar uses them to convert local time to UTC, which is
+ * wrong for dates where the standard offset was different. Calendars that
+ * parse local times must be a WallCalendar, see AHDateTime.
+ */
+final class CompiledTimeZone extends TimeZone {
+
+	private static final long serialVersionUID = 1L;
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	private final long[] transitions;
+	// Offset and DST flag of the period starting at transitions[i]
+	private final int[] offsets;
+	private final boolean[] dst;
+	private final int initialOffset;
+	private final boolean initialDst;
+	private final int standardOffset;
+	private final SimpleTimeZone tail;
+	private int rawOffsetDelta;
+
+	private CompiledTimeZone(String id, long[] transitions, int[] offsets, boolean[] dst,
+			int initialOffset, boolean initialDst, int standardOffset, SimpleTimeZone tail) {
+		setID(id);
+		this.transitions = transitions;
+		this.offsets = offsets;
+		this.dst = dst;
+		this.initialOffset = initialOffset;
+		this.initialDst = initialDst;
+		this.standardOffset = standardOffset;
+		this.tail = tail;
+	}
+
+	/**
+	 * Parses a TZif file.
+	 */
+	static CompiledTimeZone parse(String id, byte[] data) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		try {
+			int version = readHeaderVersion(buf);
+			int[] counts = readCounts(buf);
+
+			if (version >= '2') {
+				// Skip the 32 bit data block, the 64 bit block follows
+				buf.position(buf.position() + dataLength(counts, 4));
+				readHeaderVersion(buf);
+				counts = readCounts(buf);
+				return readData(id, buf, counts, 8, true);
+			}
+			return readData(id, buf, counts, 4, false);
+		} catch (RuntimeException e) {
+			// BufferUnderflowException, IndexOutOfBoundsException, ...
+			throw new IOException("Invalid zone data for " + id);
+		}
+	}
+
+	private static int readHeaderVersion(ByteBuffer buf) throws IOException {
+		if (buf.get() != 'T' || buf.get() != 'Z' || buf.get() != 'i' || buf.get() != 'f') {
+			throw new IOException("Not a TZif file");
+		}
+		int version = buf.get();
+		buf.position(buf.position() + 15);
+		return version;
+	}
+
+	// isutcnt, isstdcnt, leapcnt, timecnt, typecnt, charcnt
+	private static int[] readCounts(ByteBuffer buf) {
+		int[] counts = new int[6];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buf.getInt();
+		}
+		return counts;
+	}
+
+	private static int dataLength(int[] counts, int timeSize) {
+		return counts[3] * timeSize + counts[3] + counts[4] * 6 + counts[5]
+				+ counts[2] * (timeSize + 4) + counts[1] + counts[0];
+	}
+
+	private static CompiledTimeZone readData(String id, ByteBuffer buf, int[] counts,
+			int timeSize, boolean hasFooter) throws IOException {
+		int timeCount = counts[3];
+		int typeCount = counts[4];
+
+		long[] times = new long[timeCount];
+		for (int i = 0; i < timeCount; i++) {
+			times[i] = timeSize == 8 ? buf.getLong() * 1000 : buf.getInt() * 1000L;
+		}
+		int[] typeIndex = new int[timeCount];
+		for (int i = 0; i < timeCount; i++) {
+			typeIndex[i] = buf.get() & 0xff;
+		}
+
+		int[] typeOffset = new int[typeCount];
+		boolean[] typeDst = new boolean[typeCount];
+		for (int i = 0; i < typeCount; i++) {
+			typeOffset[i] = buf.getInt() * 1000;
+			typeDst[i] = buf.get() != 0;
+			buf.get(); // abbreviation index
+		}
+
+		int[] offsets = new int[timeCount];
+		boolean[] dst = new boolean[timeCount];
+		for (int i = 0; i < timeCount; i++) {
+			offsets[i] = typeOffset[typeIndex[i]];
+			dst[i] = typeDst[typeIndex[i]];
+		}
+		normalizeNegativeDst(offsets, dst);
+
+		int standardOffset = typeOffset[0];
+		for (int i = 0; i < timeCount; i++) {
+			if (!dst[i]) {
+				standardOffset = offsets[i];
+			}
+		}
+
+		SimpleTimeZone tail = null;
+		if (hasFooter) {
+			buf.position(buf.position() + counts[5] + counts[2] * (timeSize + 4) + counts[1] + counts[0]);
+			StringBuilder sb = new StringBuilder();
+			if (buf.hasRemaining() && buf.get() == '\n') {
+				while (buf.hasRemaining()) {
+					char c = (char) buf.get();
+					if (c == '\n') {
+						break;
+					}
+					sb.append(c);
+				}
+			}
+			tail = parsePosix(id, sb.toString());
+			if (tail != null) {
+				standardOffset = tail.getRawOffset();
+			}
+		}
+
+		return new CompiledTimeZone(id, times, offsets, dst, typeOffset[0], typeDst[0],
+				standardOffset, tail);
+	}
+
+	/**
+	 * Newer tzdata uses negative DST for some zones (Europe/Dublin has summer
+	 * time as standard time and winter time as "DST"). Java treats the higher
+	 * offset as DST, so the flags of such periods are swapped.
+	 */
+	private static void normalizeNegativeDst(int[] offsets, boolean[] dst) {
+		boolean[] original = dst.clone();
+		for (int i = 0; i < offsets.length; i++) {
+			if (!original[i]) {
+				continue;
+			}
+			for (int j = i - 1; j <= i + 1; j += 2) {
+				if (j >= 0 && j < offsets.length && !original[j] && offsets[j] > offsets[i]) {
+					dst[i] = false;
+					dst[j] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts a POSIX TZ string like "CET-1CEST,M3.5.0,M10.5.0/3" to a
+	 * SimpleTimeZone. Returns null for empty strings and rules that cannot be
+	 * expressed as a SimpleTimeZone (Julian day rules).
+	 */
+	static SimpleTimeZone parsePosix(String id, String rule) {
+		if (rule.length() == 0) {
+			return null;
+		}
+		try {
+			int[] pos = { 0 };
+			skipName(rule, pos);
+			int std = -parseTime(rule, pos);
+			if (pos[0] >= rule.length()) {
+				return new SimpleTimeZone(std, id);
+			}
+
+			skipName(rule, pos);
+			int dstOffset = std + 3600000;
+			if (pos[0] < rule.length() && rule.charAt(pos[0]) != ',') {
+				dstOffset = -parseTime(rule, pos);
+			}
+			if (pos[0] >= rule.length() || rule.charAt(pos[0]) != ',') {
+				return null;
+			}
+			pos[0]++;
+			int[] start = parseDate(rule, pos);
+			if (start == null || rule.charAt(pos[0]) != ',') {
+				return null;
+			}
+			pos[0]++;
+			int[] end = parseDate(rule, pos);
+			if (end == null) {
+				return null;
+			}
+
+			if (dstOffset < std) {
+				// Negative DST (Europe/Dublin). SimpleTimeZone only supports positive
+				// savings, so the "DST" period becomes standard time like in the
+				// tzdata of the JDK.
+				int[] swap = start;
+				start = end;
+				end = swap;
+				int savings = std - dstOffset;
+				std = dstOffset;
+				dstOffset = std + savings;
+			}
+
+			return new SimpleTimeZone(std, id,
+					start[0], start[1], start[2], start[3], SimpleTimeZone.WALL_TIME,
+					end[0], end[1], end[2], end[3], SimpleTimeZone.WALL_TIME,
+					dstOffset - std);
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static void skipName(String rule, int[] pos) {
+		if (rule.charAt(pos[0]) == '<') {
+			pos[0] = rule.indexOf('>', pos[0]) + 1;
+		} else {
+			while (pos[0] < rule.length() && Character.isLetter(rule.charAt(pos[0]))) {
+				pos[0]++;
+			}
+		}
+	}
+
+	// [+-]hh[:mm[:ss]] in milliseconds
+	private static int parseTime(String rule, int[] pos) {
+		int sign = 1;
+		char c = rule.charAt(pos[0]);
+		if (c == '+' || c == '-') {
+			sign = c == '-' ? -1 : 1;
+			pos[0]++;
+		}
+		int ret = 0;
+		int factor = 3600000;
+		while (true) {
+			int value = 0;
+			int start = pos[0];
+			while (pos[0] < rule.length() && Character.isDigit(rule.charAt(pos[0]))) {
+				value = value * 10 + rule.charAt(pos[0]) - '0';
+				pos[0]++;
+			}
+			if (pos[0] == start) {
+				throw new IllegalArgumentException(rule);
+			}
+			ret += value * factor;
+			if (factor == 1000 || pos[0] >= rule.length() || rule.charAt(pos[0]) != ':') {
+				break;
+			}
+			pos[0]++;
+			factor /= 60;
+		}
+		return sign * ret;
+	}
+
+	// Mm.w.d[/time] as { month, day, dayOfWeek, time } for SimpleTimeZone
+	private static int[] parseDate(String rule, int[] pos) {
+		if (rule.charAt(pos[0]) != 'M') {
+			return null;
+		}
+		pos[0]++;
+		int end = rule.indexOf(',', pos[0]);
+		int slash = rule.indexOf('/', pos[0]);
+		if (end < 0) {
+			end = rule.length();
+		}
+		String[] fields = rule.substring(pos[0], slash >= 0 && slash < end ? slash : end).split("\\.");
+		int month = Integer.parseInt(fields[0]) - 1;
+		int week = Integer.parseInt(fields[1]);
+		int dayOfWeek = Integer.parseInt(fields[2]) + Calendar.SUNDAY;
+
+		int time = 2 * 3600000;
+		pos[0] = slash >= 0 && slash < end ? slash + 1 : end;
+		if (pos[0] < end) {
+			time = parseTime(rule, pos);
+		}
+		if (time < 0 || time > DAY) {
+			return null;
+		}
+		return new int[] { month, week == 5 ? -1 : week, dayOfWeek, time };
+	}
+
+	private int index(long time) {
+		int lo = 0;
+		int hi = transitions.length - 1;
+		if (hi < 0 || time < transitions[0]) {
+			return -1;
+		}
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (transitions[mid] <= time) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	private boolean useTail(int index) {
+		return tail != null && (index == transitions.length - 1 || transitions.length == 0);
+	}
+
+	@Override
+	public int getOffset(long date) {
+		int i = index(date);
+		if (i < 0 && !useTail(i)) {
+			return initialOffset + rawOffsetDelta;
+		}
+		return (useTail(i) ? tail.getOffset(date) : offsets[i]) + rawOffsetDelta;
+	}
+
+	@Override
+	public int getOffset(int era, int year, int month, int day, int dayOfWeek, int milliseconds) {
+		if (era == java.util.GregorianCalendar.BC) {
+			year = 1 - year;
+		}
+		// Days since 1970-01-01 for the local date (algorithm by Howard Hinnant)
+		int y = month <= Calendar.FEBRUARY ? year - 1 : year;
+		int m = month + 1;
+		long era400 = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era400 * 400;
+		long doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		long local = (era400 * 146097 + doe - 719468) * DAY + milliseconds;
+
+		return getOffsetByWall(local);
+	}
+
+	/**
+	 * Returns the offset for a local wall time, resolved like the zones of the
+	 * JDK: a time in a gap (clocks go forward) uses the offset before the
+	 * transition, a time that exists twice (clocks go back) the offset after it.
+	 */
+	int getOffsetByWall(long local) {
+		// Assumes at most one transition within two days
+		int before = getOffset(local - DAY);
+		int after = getOffset(local + DAY);
+		if (before == after) {
+			return before;
+		}
+		if (getOffset(local - after) == after) {
+			return after;
+		}
+		return before;
+	}
+
+	/**
+	 * GregorianCalendar that converts local time to UTC with the transition
+	 * table of a CompiledTimeZone instead of the current raw offset and DST
+	 * savings. Behaves like a GregorianCalendar for all other zones.
+	 */
+	static final class WallCalendar extends GregorianCalendar {
+		private static final long serialVersionUID = 1L;
+
+		WallCalendar(TimeZone zone, Locale locale) {
+			super(zone, locale);
+		}
+
+		@Override
+		protected void computeTime() {
+			TimeZone zone = getTimeZone();
+			if (!(zone instanceof CompiledTimeZone) || isSet(ZONE_OFFSET) || isSet(DST_OFFSET)) {
+				// Explicit offsets, for example parsed from the text
+				super.computeTime();
+				return;
+			}
+
+			// Local wall time as if it were UTC, the fields are recomputed from
+			// the final time on the next get()
+			set(ZONE_OFFSET, 0);
+			set(DST_OFFSET, 0);
+			super.computeTime();
+
+			CompiledTimeZone compiled = (CompiledTimeZone) zone;
+			long local = time;
+			int offset = compiled.getOffsetByWall(local);
+			if (!isLenient() && compiled.getOffset(local - offset) != offset) {
+				throw new IllegalArgumentException("Local time does not exist: " + local);
+			}
+			time = local - offset;
+		}
+	}
+
+	@Override
+	public boolean inDaylightTime(Date date) {
+		long time = date.getTime();
+		int i = index(time);
+		if (i < 0 && !useTail(i)) {
+			return initialDst;
+		}
+		return useTail(i) ? tail.inDaylightTime(date) : dst[i];
+	}
+
+	@Override
+	public int getRawOffset() {
+		return standardOffset + rawOffsetDelta;
+	}
+
+	@Override
+	public void setRawOffset(int offsetMillis) {
+		rawOffsetDelta = offsetMillis - standardOffset;
+	}
+
+	@Override
+	public boolean useDaylightTime() {
+		return tail != null && tail.useDaylightTime();
+	}
+
+	@Override
+	public int getDSTSavings() {
+		return tail != null ? tail.getDSTSavings() : 0;
+	}
+}
@@ -0,0 +1,24 @@
+package de.amberhome.locale;
+
+import anywheresoftware.b4a.BA;
+
+/**
+ * Implementation of the formatting methods behind AHDateUtils and
+ * AHDateTime.is24HourFormat(). The flags are the FORMAT_xxx constants of
+ * AHDateUtils (android.text.format.DateUtils).
+ */
+interface DateUtilsBackend {
+
+	String formatDateTime(BA ba, long millis, int flags);
+
+	String formatDateRange(BA ba, long startMillis, long endMillis, int flags);
+
+	String formatElapsedTime(long elapsedSeconds);
+
+	CharSequence getRelativeTimeSpanString(long time, long now, long minResolution, int flags);
+
+	CharSequence getRelativeDateTimeString(BA ba, long time, long minResolution,
+			long transitionResolution, int flags);
+
+	boolean is24HourFormat(BA ba);
+}
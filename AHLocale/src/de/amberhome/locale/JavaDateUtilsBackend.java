@@ -0,0 +1,668 @@
+package de.amberhome.locale;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import anywheresoftware.b4a.BA;
+
+/**
+ * DateUtilsBackend in plain Java, so AHDateUtils also works outside of an
+ * Android device. The BA parameter is not used and may be null.
+ *
+ * The flags are handled like android.text.format.DateUtils does since
+ * Android 6 (ICU skeletons): the flags select the fields, the patterns of
+ * the fields are taken from the DateFormat patterns of the current locale.
+ * Relative time strings are localized for the languages of
+ * RelativeTimeStrings, other languages get the English strings.
+ */
+final class JavaDateUtilsBackend implements DateUtilsBackend {
+
+	private static final long SECOND = 1000;
+	private static final long MINUTE = 60 * SECOND;
+	private static final long HOUR = 60 * MINUTE;
+	private static final long DAY = 24 * HOUR;
+	private static final long WEEK = 7 * DAY;
+
+	private static final String RANGE_SEPARATOR = " \u2013 ";
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	/**
+	 * The patterns for one combination of fields and a locale.
+	 */
+	private static final class Skeleton {
+		// date or weekday pattern, null if not shown
+		final String date;
+		// time pattern, null if not shown
+		final String time;
+		// separator between date and time (pattern syntax)
+		final String glue;
+		final boolean timeFirst;
+		final String pattern;
+		// time pattern without the am/pm marker, null if it has none
+		final String timeNoMarker;
+		// true if the marker comes before the hour, like "a h:mm"
+		final boolean markerFirst;
+		// date pattern up to and from the day for days of one month, like
+		// "MMMM d" and "d, y" for "March 5 \u2013 7, 2013", null if not used
+		final String dayFirst;
+		final String daySecond;
+
+		Skeleton(String date, String time, String glue, boolean timeFirst,
+				String timeNoMarker, boolean markerFirst, String dayFirst, String daySecond) {
+			this.date = date;
+			this.time = time;
+			this.glue = glue;
+			this.timeFirst = timeFirst;
+			this.timeNoMarker = timeNoMarker;
+			this.markerFirst = markerFirst;
+			this.dayFirst = dayFirst;
+			this.daySecond = daySecond;
+			if (date == null) {
+				pattern = time;
+			} else if (time == null) {
+				pattern = date;
+			} else {
+				pattern = timeFirst ? time + glue + date : date + glue + time;
+			}
+		}
+	}
+
+	// flags|minutes|locale -> Skeleton
+	private static final ConcurrentHashMap<String, Skeleton> skeletonCache = new ConcurrentHashMap<String, Skeleton>();
+
+	// locale|pattern -> SimpleDateFormat, per thread
+	private static final ThreadLocal<HashMap<String, SimpleDateFormat>> formats = new ThreadLocal<HashMap<String, SimpleDateFormat>>();
+
+	@Override
+	public String formatDateTime(BA ba, long millis, int flags) {
+		return formatRange(millis, millis, flags);
+	}
+
+	@Override
+	public String formatDateRange(BA ba, long startMillis, long endMillis, int flags) {
+		return formatRange(startMillis, endMillis, flags);
+	}
+
+	static String formatRange(long startMillis, long endMillis, int flags) {
+		Locale locale = Locale.getDefault();
+		TimeZone zone = (flags & AHDateUtils.FORMAT_UTC) != 0 ? UTC : AHTimezone.defaultZone();
+
+		if ((flags & (AHDateUtils.FORMAT_SHOW_TIME | AHDateUtils.FORMAT_12HOUR | AHDateUtils.FORMAT_24HOUR)) == AHDateUtils.FORMAT_SHOW_TIME) {
+			flags |= is24Hour(locale) ? AHDateUtils.FORMAT_24HOUR : AHDateUtils.FORMAT_12HOUR;
+		}
+		if ((flags & AHDateUtils.FORMAT_ABBREV_ALL) != 0) {
+			flags |= AHDateUtils.FORMAT_ABBREV_MONTH | AHDateUtils.FORMAT_ABBREV_TIME
+					| AHDateUtils.FORMAT_ABBREV_WEEKDAY;
+		}
+
+		Calendar start = new GregorianCalendar(zone, locale);
+		start.setTimeInMillis(startMillis);
+		Calendar end = new GregorianCalendar(zone, locale);
+		end.setTimeInMillis(endMillis);
+
+		// An end at midnight is exclusive, except for a range from midnight
+		// to midnight with times
+		if (startMillis != endMillis && isMidnight(end)
+				&& ((flags & AHDateUtils.FORMAT_SHOW_TIME) == 0
+						|| (dayDistance(start, end) == 1 && !isMidnight(start)))) {
+			end.add(Calendar.DAY_OF_MONTH, -1);
+		}
+
+		boolean sameYear = start.get(Calendar.YEAR) == end.get(Calendar.YEAR);
+		boolean sameMonth = sameYear && start.get(Calendar.MONTH) == end.get(Calendar.MONTH);
+		boolean sameDay = sameMonth && start.get(Calendar.DAY_OF_MONTH) == end.get(Calendar.DAY_OF_MONTH);
+
+		if (!sameDay) {
+			flags |= AHDateUtils.FORMAT_SHOW_DATE;
+		}
+		if (sameMonth && (flags & AHDateUtils.FORMAT_NO_MONTH_DAY) != 0) {
+			flags &= ~(AHDateUtils.FORMAT_SHOW_WEEKDAY | AHDateUtils.FORMAT_SHOW_TIME);
+		}
+		if ((flags & (AHDateUtils.FORMAT_SHOW_DATE | AHDateUtils.FORMAT_SHOW_TIME | AHDateUtils.FORMAT_SHOW_WEEKDAY)) == 0) {
+			flags |= AHDateUtils.FORMAT_SHOW_DATE;
+		}
+		if ((flags & AHDateUtils.FORMAT_SHOW_DATE) != 0
+				&& (flags & (AHDateUtils.FORMAT_SHOW_YEAR | AHDateUtils.FORMAT_NO_YEAR)) == 0) {
+			Calendar now = new GregorianCalendar(zone, locale);
+			if (!sameYear || start.get(Calendar.YEAR) != now.get(Calendar.YEAR)) {
+				flags |= AHDateUtils.FORMAT_SHOW_YEAR;
+			}
+		}
+
+		// Abbreviated 12 hour times leave out ":00"
+		boolean minutes = (flags & AHDateUtils.FORMAT_ABBREV_TIME) == 0
+				|| (flags & AHDateUtils.FORMAT_24HOUR) != 0
+				|| start.get(Calendar.MINUTE) != 0 || end.get(Calendar.MINUTE) != 0;
+
+		Skeleton skeleton = skeleton(flags, minutes, locale);
+		String first = format(skeleton.pattern, locale, zone, start);
+		if (startMillis == endMillis) {
+			return first;
+		}
+		String second = format(skeleton.pattern, locale, zone, end);
+		if (first.equals(second)) {
+			return first;
+		}
+
+		if (sameDay && skeleton.time != null) {
+			String times = timeRange(skeleton, locale, zone, start, end);
+			if (skeleton.date == null) {
+				return times;
+			}
+			String date = format(skeleton.date, locale, zone, start);
+			String glue = literal(skeleton.glue);
+			return skeleton.timeFirst ? times + glue + date : date + glue + times;
+		}
+
+		if (sameMonth && skeleton.dayFirst != null) {
+			return format(skeleton.dayFirst, locale, zone, start) + RANGE_SEPARATOR
+					+ format(skeleton.daySecond, locale, zone, end);
+		}
+		if (sameYear && skeleton.time == null && (flags & AHDateUtils.FORMAT_SHOW_YEAR) != 0
+				&& (flags & AHDateUtils.FORMAT_NUMERIC_DATE) == 0) {
+			// Show the year only once
+			Skeleton noYear = skeleton(flags & ~AHDateUtils.FORMAT_SHOW_YEAR | AHDateUtils.FORMAT_NO_YEAR,
+					minutes, locale);
+			first = format(noYear.pattern, locale, zone, start);
+		}
+		return first + RANGE_SEPARATOR + second;
+	}
+
+	/**
+	 * Formats two times of the same day. If both have the same am/pm marker
+	 * it is shown only once, like "3:05 \u2013 4:05 PM".
+	 */
+	private static String timeRange(Skeleton skeleton, Locale locale, TimeZone zone,
+			Calendar start, Calendar end) {
+		String first = skeleton.time;
+		String second = skeleton.time;
+		if (skeleton.timeNoMarker != null && start.get(Calendar.AM_PM) == end.get(Calendar.AM_PM)) {
+			if (skeleton.markerFirst) {
+				second = skeleton.timeNoMarker;
+			} else {
+				first = skeleton.timeNoMarker;
+			}
+		}
+		return format(first, locale, zone, start) + RANGE_SEPARATOR + format(second, locale, zone, end);
+	}
+
+	private static boolean isMidnight(Calendar cal) {
+		return cal.get(Calendar.HOUR_OF_DAY) == 0 && cal.get(Calendar.MINUTE) == 0
+				&& cal.get(Calendar.SECOND) == 0 && cal.get(Calendar.MILLISECOND) == 0;
+	}
+
+	private static int dayDistance(Calendar start, Calendar end) {
+		return julianDay(end) - julianDay(start);
+	}
+
+	private static int julianDay(Calendar cal) {
+		long local = cal.getTimeInMillis() + cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
+		return (int) (local >= 0 ? local / DAY : (local - DAY + 1) / DAY);
+	}
+
+	private static String format(String pattern, Locale locale, TimeZone zone, Calendar cal) {
+		HashMap<String, SimpleDateFormat> map = formats.get();
+		if (map == null) {
+			map = new HashMap<String, SimpleDateFormat>();
+			formats.set(map);
+		}
+		String key = locale + "|" + pattern;
+		SimpleDateFormat sdf = map.get(key);
+		if (sdf == null) {
+			sdf = new SimpleDateFormat(pattern, locale);
+			map.put(key, sdf);
+		}
+		sdf.setTimeZone(zone);
+		return sdf.format(cal.getTime());
+	}
+
+	private static final int SKELETON_FLAGS = AHDateUtils.FORMAT_SHOW_TIME | AHDateUtils.FORMAT_SHOW_WEEKDAY
+			| AHDateUtils.FORMAT_SHOW_YEAR | AHDateUtils.FORMAT_SHOW_DATE | AHDateUtils.FORMAT_NO_MONTH_DAY
+			| AHDateUtils.FORMAT_12HOUR | AHDateUtils.FORMAT_24HOUR | AHDateUtils.FORMAT_ABBREV_WEEKDAY
+			| AHDateUtils.FORMAT_ABBREV_MONTH | AHDateUtils.FORMAT_NUMERIC_DATE;
+
+	private static Skeleton skeleton(int flags, boolean minutes, Locale locale) {
+		flags &= SKELETON_FLAGS;
+		String key = flags + "|" + minutes + "|" + locale;
+		Skeleton ret = skeletonCache.get(key);
+		if (ret == null) {
+			ret = buildSkeleton(flags, minutes, locale);
+			Skeleton old = skeletonCache.putIfAbsent(key, ret);
+			if (old != null) {
+				ret = old;
+			}
+		}
+		return ret;
+	}
+
+	private static Skeleton buildSkeleton(int flags, boolean minutes, Locale locale) {
+		String weekPart = (flags & AHDateUtils.FORMAT_ABBREV_WEEKDAY) != 0 ? "EEE" : "EEEE";
+		boolean weekday = (flags & AHDateUtils.FORMAT_SHOW_WEEKDAY) != 0;
+
+		String date = null;
+		String glue;
+		boolean timeFirst = false;
+		if ((flags & (AHDateUtils.FORMAT_SHOW_DATE | AHDateUtils.FORMAT_NO_MONTH_DAY)) != 0) {
+			date = datePattern(flags, weekPart, locale);
+
+			String dateTime = pattern(DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT, locale));
+			String datePart = pattern(DateFormat.getDateInstance(DateFormat.MEDIUM, locale));
+			String timePart = pattern(DateFormat.getTimeInstance(DateFormat.SHORT, locale));
+			int glueLength = dateTime.length() - datePart.length() - timePart.length();
+			if (glueLength >= 0 && dateTime.startsWith(datePart) && dateTime.endsWith(timePart)) {
+				glue = dateTime.substring(datePart.length(), datePart.length() + glueLength);
+			} else if (glueLength >= 0 && dateTime.startsWith(timePart) && dateTime.endsWith(datePart)) {
+				glue = dateTime.substring(timePart.length(), timePart.length() + glueLength);
+				timeFirst = true;
+			} else {
+				glue = " ";
+			}
+		} else {
+			if (weekday) {
+				date = weekPart;
+			}
+			glue = " ";
+		}
+
+		String time = null;
+		String timeNoMarker = null;
+		boolean markerFirst = false;
+		if ((flags & AHDateUtils.FORMAT_SHOW_TIME) != 0) {
+			time = timePattern(flags, minutes, locale);
+
+			ArrayList<String> tokens = tokenize(time);
+			int hour = -1;
+			for (int i = 0; i < tokens.size(); i++) {
+				char c = tokens.get(i).charAt(0);
+				if (hour < 0 && (c == 'h' || c == 'K' || c == 'H' || c == 'k')) {
+					hour = i;
+				} else if (c == 'a') {
+					markerFirst = hour < 0;
+					removeField(tokens, i);
+					StringBuilder sb = new StringBuilder();
+					for (String token : tokens) {
+						sb.append(token);
+					}
+					timeNoMarker = sb.toString();
+					break;
+				}
+			}
+		}
+		// Days of one month show the month and year once. Not for weekdays
+		// and numeric dates, these show both dates.
+		String dayFirst = null;
+		String daySecond = null;
+		if (date != null && time == null && !weekday
+				&& (flags & (AHDateUtils.FORMAT_NUMERIC_DATE | AHDateUtils.FORMAT_NO_MONTH_DAY)) == 0) {
+			ArrayList<String> tokens = tokenize(date);
+			for (int i = 0; i < tokens.size(); i++) {
+				if (tokens.get(i).charAt(0) == 'd') {
+					StringBuilder first = new StringBuilder();
+					StringBuilder second = new StringBuilder();
+					for (int j = 0; j < tokens.size(); j++) {
+						if (j <= i) {
+							first.append(tokens.get(j));
+						}
+						if (j >= i) {
+							second.append(tokens.get(j));
+						}
+					}
+					// The first day keeps a suffix without spaces like the day
+					// sign of Japanese dates, or "." in "d. MMMM y" if the day
+					// is the first field
+					if (i + 1 < tokens.size() && !isField(tokens.get(i + 1))) {
+						String suffix = tokens.get(i + 1);
+						int length = 0;
+						while (length < suffix.length() && !Character.isWhitespace(suffix.charAt(length))) {
+							length++;
+						}
+						if (length == suffix.length() || (i == 0 && suffix.indexOf('\'') < 0)) {
+							first.append(suffix, 0, length);
+						}
+					}
+					dayFirst = first.toString();
+					daySecond = second.toString();
+					break;
+				}
+			}
+		}
+		return new Skeleton(date, time, glue, timeFirst, timeNoMarker, markerFirst, dayFirst, daySecond);
+	}
+
+	private static String datePattern(int flags, String weekPart, Locale locale) {
+		boolean numeric = (flags & AHDateUtils.FORMAT_NUMERIC_DATE) != 0;
+		boolean weekday = (flags & AHDateUtils.FORMAT_SHOW_WEEKDAY) != 0;
+		String monthPart = (flags & AHDateUtils.FORMAT_ABBREV_MONTH) != 0 ? "MMM" : "MMMM";
+
+		int style = numeric ? DateFormat.SHORT : weekday ? DateFormat.FULL : DateFormat.LONG;
+		ArrayList<String> tokens = tokenize(pattern(DateFormat.getDateInstance(style, locale)));
+
+		boolean hasWeekday = false;
+		// The year first, so the day is removed from "MMMM d" instead of "MMMM d, y"
+		for (int i = tokens.size() - 1; i >= 0; i--) {
+			if (i >= tokens.size()) {
+				continue;
+			}
+			char c = tokens.get(i).charAt(0);
+			if ((c == 'y' || c == 'u') && isField(tokens.get(i))) {
+				if ((flags & AHDateUtils.FORMAT_SHOW_YEAR) == 0) {
+					removeField(tokens, i);
+				} else {
+					tokens.set(i, "y");
+				}
+			}
+		}
+		for (int i = tokens.size() - 1; i >= 0; i--) {
+			if (i >= tokens.size() || !isField(tokens.get(i))) {
+				continue;
+			}
+			char c = tokens.get(i).charAt(0);
+			if (c == 'd') {
+				if ((flags & AHDateUtils.FORMAT_NO_MONTH_DAY) != 0) {
+					removeField(tokens, i);
+				}
+			} else if (c == 'E') {
+				if (weekday) {
+					tokens.set(i, weekPart);
+					hasWeekday = true;
+				} else {
+					removeField(tokens, i);
+				}
+			} else if ((c == 'M' || c == 'L') && !numeric) {
+				tokens.set(i, monthPart);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		if (weekday && !hasWeekday) {
+			sb.append(weekPart).append(", ");
+		}
+		for (String token : tokens) {
+			sb.append(token);
+		}
+		return sb.toString();
+	}
+
+	private static String timePattern(int flags, boolean minutes, Locale locale) {
+		boolean h24 = (flags & AHDateUtils.FORMAT_24HOUR) != 0;
+		ArrayList<String> tokens = tokenize(pattern(DateFormat.getTimeInstance(DateFormat.SHORT, locale)));
+
+		boolean hasAmPm = false;
+		for (int i = tokens.size() - 1; i >= 0; i--) {
+			if (i >= tokens.size() || !isField(tokens.get(i))) {
+				continue;
+			}
+			String token = tokens.get(i);
+			char c = token.charAt(0);
+			if (c == 'h' || c == 'K') {
+				if (h24) {
+					tokens.set(i, "HH");
+				}
+			} else if (c == 'H' || c == 'k') {
+				if (!h24) {
+					tokens.set(i, "h");
+				}
+			} else if (c == 'a') {
+				if (h24) {
+					removeField(tokens, i);
+				} else {
+					hasAmPm = true;
+				}
+			} else if (c == 'm') {
+				if (!minutes) {
+					removeField(tokens, i);
+				}
+			} else if (c == 's' || c == 'S') {
+				removeField(tokens, i);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (String token : tokens) {
+			sb.append(token);
+		}
+		if (!h24 && !hasAmPm) {
+			sb.append(" a");
+		}
+		return sb.toString();
+	}
+
+	private static String pattern(DateFormat format) {
+		return format instanceof SimpleDateFormat ? ((SimpleDateFormat) format).toPattern() : "";
+	}
+
+	/**
+	 * Splits a SimpleDateFormat pattern into fields (runs of the same pattern
+	 * letter) and literals (everything else, quoted text included).
+	 */
+	private static ArrayList<String> tokenize(String pattern) {
+		ArrayList<String> ret = new ArrayList<String>();
+		StringBuilder literal = new StringBuilder();
+		int i = 0;
+		while (i < pattern.length()) {
+			char c = pattern.charAt(i);
+			if (isPatternLetter(c)) {
+				if (literal.length() > 0) {
+					ret.add(literal.toString());
+					literal.setLength(0);
+				}
+				int start = i;
+				while (i < pattern.length() && pattern.charAt(i) == c) {
+					i++;
+				}
+				ret.add(pattern.substring(start, i));
+			} else if (c == '\'') {
+				int end = pattern.indexOf('\'', i + 1);
+				if (end < 0) {
+					end = pattern.length() - 1;
+				}
+				literal.append(pattern, i, end + 1);
+				i = end + 1;
+			} else {
+				literal.append(c);
+				i++;
+			}
+		}
+		if (literal.length() > 0) {
+			ret.add(literal.toString());
+		}
+		return ret;
+	}
+
+	private static boolean isPatternLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isField(String token) {
+		return isPatternLetter(token.charAt(0));
+	}
+
+	/**
+	 * Removes a field and one of the literals next to it. If there are
+	 * literals on both sides the one with more punctuation is removed, so
+	 * "MMMM d, y" without the day becomes "MMMM y".
+	 */
+	private static void removeField(ArrayList<String> tokens, int index) {
+		tokens.remove(index);
+		boolean before = index > 0 && !isField(tokens.get(index - 1));
+		boolean after = index < tokens.size() && !isField(tokens.get(index));
+		if (before && after) {
+			if (weight(tokens.get(index - 1)) > weight(tokens.get(index))) {
+				tokens.remove(index - 1);
+			} else {
+				tokens.remove(index);
+			}
+		} else if (after && index == 0) {
+			tokens.remove(index);
+		} else if (before) {
+			tokens.remove(index - 1);
+		}
+	}
+
+	private static int weight(String literal) {
+		int ret = 0;
+		for (int i = 0; i < literal.length(); i++) {
+			if (!Character.isWhitespace(literal.charAt(i))) {
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Converts a literal in pattern syntax to plain text.
+	 */
+	private static String literal(String pattern) {
+		StringBuilder sb = new StringBuilder(pattern.length());
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c != '\'') {
+				sb.append(c);
+			} else if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+				sb.append(c);
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
+	static boolean is24Hour(Locale locale) {
+		ArrayList<String> tokens = tokenize(pattern(DateFormat.getTimeInstance(DateFormat.SHORT, locale)));
+		for (String token : tokens) {
+			char c = token.charAt(0);
+			if (c == 'H' || c == 'k') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String formatElapsedTime(long elapsedSeconds) {
+		long hours = elapsedSeconds / 3600;
+		long minutes = elapsedSeconds % 3600 / 60;
+		long seconds = elapsedSeconds % 60;
+		if (hours > 0) {
+			return String.format("%1$d:%2$02d:%3$02d", hours, minutes, seconds);
+		}
+		return String.format("%1$02d:%2$02d", minutes, seconds);
+	}
+
+	@Override
+	public CharSequence getRelativeTimeSpanString(long time, long now, long minResolution, int flags) {
+		boolean abbrev = (flags & (AHDateUtils.FORMAT_ABBREV_RELIVE | AHDateUtils.FORMAT_ABBREV_ALL)) != 0;
+		boolean past = now >= time;
+		long duration = Math.abs(now - time);
+
+		int unit;
+		long count;
+		if (duration < MINUTE && minResolution < MINUTE) {
+			unit = RelativeTimeStrings.SECONDS;
+			count = duration / SECOND;
+		} else if (duration < HOUR && minResolution < HOUR) {
+			unit = RelativeTimeStrings.MINUTES;
+			count = duration / MINUTE;
+		} else if (duration < DAY && minResolution < DAY) {
+			unit = RelativeTimeStrings.HOURS;
+			count = duration / HOUR;
+		} else if (duration < WEEK && minResolution < WEEK) {
+			TimeZone zone = AHTimezone.defaultZone();
+			unit = RelativeTimeStrings.DAYS;
+			count = Math.abs(localDay(now, zone) - localDay(time, zone));
+		} else if (minResolution == WEEK) {
+			unit = RelativeTimeStrings.WEEKS;
+			count = duration / WEEK;
+		} else {
+			return absoluteDate(time, now, flags);
+		}
+
+		Locale locale = Locale.getDefault();
+		RelativeTimeStrings strings = RelativeTimeStrings.forLocale(locale);
+		if (unit == RelativeTimeStrings.DAYS && count <= 2) {
+			// Today, Yesterday, Tomorrow and the words for two days if the
+			// language has them
+			String day = strings.day((int) count, past);
+			if (day != null) {
+				return day;
+			}
+		}
+		return strings.format(count, unit, abbrev, past, locale);
+	}
+
+	private static long localDay(long time, TimeZone zone) {
+		long local = time + zone.getOffset(time);
+		return local >= 0 ? local / DAY : (local - DAY + 1) / DAY;
+	}
+
+	private static int year(long time, TimeZone zone) {
+		Calendar cal = new GregorianCalendar(zone);
+		cal.setTimeInMillis(time);
+		return cal.get(Calendar.YEAR);
+	}
+
+	/**
+	 * The date of a time too far away for a relative string. Uses the flags
+	 * of the caller and shows the year only if it is not the year of now.
+	 */
+	private static String absoluteDate(long time, long now, int flags) {
+		if ((flags & (AHDateUtils.FORMAT_SHOW_YEAR | AHDateUtils.FORMAT_NO_YEAR)) == 0) {
+			TimeZone zone = AHTimezone.defaultZone();
+			flags |= year(time, zone) != year(now, zone) ? AHDateUtils.FORMAT_SHOW_YEAR
+					: AHDateUtils.FORMAT_NO_YEAR;
+		}
+		return formatRange(time, time, flags);
+	}
+
+	/**
+	 * The date clause of getRelativeDateTimeString(). Like on Android the
+	 * flags of the caller are ignored: numeric date with year for other years,
+	 * abbreviated month and day for the year of now.
+	 */
+	private static String dateClause(long time, long now) {
+		TimeZone zone = AHTimezone.defaultZone();
+		if (year(time, zone) != year(now, zone)) {
+			return formatRange(time, time, AHDateUtils.FORMAT_SHOW_DATE | AHDateUtils.FORMAT_SHOW_YEAR
+					| AHDateUtils.FORMAT_NUMERIC_DATE);
+		}
+		return formatRange(time, time, AHDateUtils.FORMAT_SHOW_DATE | AHDateUtils.FORMAT_NO_YEAR
+				| AHDateUtils.FORMAT_ABBREV_MONTH);
+	}
+
+	@Override
+	public CharSequence getRelativeDateTimeString(BA ba, long time, long minResolution,
+			long transitionResolution, int flags) {
+		if (transitionResolution > WEEK) {
+			transitionResolution = WEEK;
+		} else if (transitionResolution < DAY) {
+			transitionResolution = DAY;
+		}
+
+		long now = System.currentTimeMillis();
+		CharSequence dateClause;
+		if (Math.abs(now - time) < transitionResolution) {
+			// "Yesterday" instead of "20 hours ago" for an other day
+			TimeZone zone = AHTimezone.defaultZone();
+			if (minResolution < DAY && localDay(now, zone) != localDay(time, zone)) {
+				minResolution = DAY;
+			}
+			dateClause = getRelativeTimeSpanString(time, now, minResolution, flags);
+		} else {
+			dateClause = dateClause(time, now);
+		}
+		String timeClause = formatRange(time, time, AHDateUtils.FORMAT_SHOW_TIME
+				| (flags & (AHDateUtils.FORMAT_12HOUR | AHDateUtils.FORMAT_24HOUR)));
+		return dateClause + ", " + timeClause;
+	}
+
+	@Override
+	public boolean is24HourFormat(BA ba) {
+		return is24Hour(Locale.getDefault());
+	}
+}
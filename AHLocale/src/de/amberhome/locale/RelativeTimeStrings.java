@@ -0,0 +1,140 @@
+package de.amberhome.locale;
+
+import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Relative time strings ("5 minutes ago", "Yesterday") for
+ * JavaDateUtilsBackend. These are the CLDR strings Android uses, capitalized
+ * for the beginning of a sentence like DateUtils.getRelativeTimeSpanString()
+ * returns them.
+ *
+ * Localized are English, German, French, Spanish, Italian, Dutch and
+ * Portuguese (Brazil and Portugal). All other languages use English.
+ */
+final class RelativeTimeStrings {
+
+	static final int SECONDS = 0;
+	static final int MINUTES = 1;
+	static final int HOURS = 2;
+	static final int DAYS = 3;
+	static final int WEEKS = 4;
+
+	// language, counts with the singular form, Today|Yesterday|Tomorrow|day
+	// before yesterday|day after tomorrow (empty if the language has no word),
+	// then for seconds, minutes, hours, days and weeks: past and future, long
+	// and abbreviated, each as singular|plural
+	private static final String[][] DATA = {
+		{ "en", "1", "Today|Yesterday|Tomorrow||",
+			"{0} second ago|{0} seconds ago", "In {0} second|In {0} seconds", "{0} sec. ago|{0} sec. ago", "In {0} sec.|In {0} sec.",
+			"{0} minute ago|{0} minutes ago", "In {0} minute|In {0} minutes", "{0} min. ago|{0} min. ago", "In {0} min.|In {0} min.",
+			"{0} hour ago|{0} hours ago", "In {0} hour|In {0} hours", "{0} hr. ago|{0} hr. ago", "In {0} hr.|In {0} hr.",
+			"{0} day ago|{0} days ago", "In {0} day|In {0} days", "{0} day ago|{0} days ago", "In {0} day|In {0} days",
+			"{0} week ago|{0} weeks ago", "In {0} week|In {0} weeks", "{0} wk. ago|{0} wk. ago", "In {0} wk.|In {0} wk."
+		},
+		{ "de", "1", "Heute|Gestern|Morgen|Vorgestern|\u00dcbermorgen",
+			"Vor {0} Sekunde|Vor {0} Sekunden", "In {0} Sekunde|In {0} Sekunden", "Vor {0} Sek.|Vor {0} Sek.", "In {0} Sek.|In {0} Sek.",
+			"Vor {0} Minute|Vor {0} Minuten", "In {0} Minute|In {0} Minuten", "Vor {0} Min.|Vor {0} Min.", "In {0} Min.|In {0} Min.",
+			"Vor {0} Stunde|Vor {0} Stunden", "In {0} Stunde|In {0} Stunden", "Vor {0} Std.|Vor {0} Std.", "In {0} Std.|In {0} Std.",
+			"Vor {0} Tag|Vor {0} Tagen", "In {0} Tag|In {0} Tagen", "Vor {0} Tag|Vor {0} Tagen", "In {0} Tag|In {0} Tagen",
+			"Vor {0} Woche|Vor {0} Wochen", "In {0} Woche|In {0} Wochen", "Vor {0} Woche|Vor {0} Wochen", "In {0} Woche|In {0} Wochen"
+		},
+		{ "fr", "0,1", "Aujourd\u2019hui|Hier|Demain|Avant-hier|Apr\u00e8s-demain",
+			"Il y a {0} seconde|Il y a {0} secondes", "Dans {0} seconde|Dans {0} secondes", "Il y a {0}\u00a0s|Il y a {0}\u00a0s", "Dans {0}\u00a0s|Dans {0}\u00a0s",
+			"Il y a {0} minute|Il y a {0} minutes", "Dans {0} minute|Dans {0} minutes", "Il y a {0}\u00a0min|Il y a {0}\u00a0min", "Dans {0}\u00a0min|Dans {0}\u00a0min",
+			"Il y a {0} heure|Il y a {0} heures", "Dans {0} heure|Dans {0} heures", "Il y a {0}\u00a0h|Il y a {0}\u00a0h", "Dans {0}\u00a0h|Dans {0}\u00a0h",
+			"Il y a {0} jour|Il y a {0} jours", "Dans {0} jour|Dans {0} jours", "Il y a {0}\u00a0j|Il y a {0}\u00a0j", "Dans {0}\u00a0j|Dans {0}\u00a0j",
+			"Il y a {0} semaine|Il y a {0} semaines", "Dans {0} semaine|Dans {0} semaines", "Il y a {0} sem.|Il y a {0} sem.", "Dans {0} sem.|Dans {0} sem."
+		},
+		{ "es", "1", "Hoy|Ayer|Ma\u00f1ana|Anteayer|Pasado ma\u00f1ana",
+			"Hace {0} segundo|Hace {0} segundos", "Dentro de {0} segundo|Dentro de {0} segundos", "Hace {0} s|Hace {0} s", "Dentro de {0} s|Dentro de {0} s",
+			"Hace {0} minuto|Hace {0} minutos", "Dentro de {0} minuto|Dentro de {0} minutos", "Hace {0} min|Hace {0} min", "Dentro de {0} min|Dentro de {0} min",
+			"Hace {0} hora|Hace {0} horas", "Dentro de {0} hora|Dentro de {0} horas", "Hace {0} h|Hace {0} h", "Dentro de {0} h|Dentro de {0} h",
+			"Hace {0} d\u00eda|Hace {0} d\u00edas", "Dentro de {0} d\u00eda|Dentro de {0} d\u00edas", "Hace {0} d|Hace {0} d", "Dentro de {0} d|Dentro de {0} d",
+			"Hace {0} semana|Hace {0} semanas", "Dentro de {0} semana|Dentro de {0} semanas", "Hace {0} sem.|Hace {0} sem.", "Dentro de {0} sem.|Dentro de {0} sem."
+		},
+		{ "it", "1", "Oggi|Ieri|Domani|L\u2019altro ieri|Dopodomani",
+			"{0} secondo fa|{0} secondi fa", "Tra {0} secondo|Tra {0} secondi", "{0} sec. fa|{0} sec. fa", "Tra {0} sec.|Tra {0} sec.",
+			"{0} minuto fa|{0} minuti fa", "Tra {0} minuto|Tra {0} minuti", "{0} min fa|{0} min fa", "Tra {0} min|Tra {0} min",
+			"{0} ora fa|{0} ore fa", "Tra {0} ora|Tra {0} ore", "{0} h fa|{0} h fa", "Tra {0} h|Tra {0} h",
+			"{0} giorno fa|{0} giorni fa", "Tra {0} giorno|Tra {0} giorni", "{0} g fa|{0} gg fa", "Tra {0} g|Tra {0} gg",
+			"{0} settimana fa|{0} settimane fa", "Tra {0} settimana|Tra {0} settimane", "{0} sett. fa|{0} sett. fa", "Tra {0} sett.|Tra {0} sett."
+		},
+		{ "nl", "1", "Vandaag|Gisteren|Morgen|Eergisteren|Overmorgen",
+			"{0} seconde geleden|{0} seconden geleden", "Over {0} seconde|Over {0} seconden", "{0} sec. geleden|{0} sec. geleden", "Over {0} sec.|Over {0} sec.",
+			"{0} minuut geleden|{0} minuten geleden", "Over {0} minuut|Over {0} minuten", "{0} min. geleden|{0} min. geleden", "Over {0} min.|Over {0} min.",
+			"{0} uur geleden|{0} uur geleden", "Over {0} uur|Over {0} uur", "{0} uur geleden|{0} uur geleden", "Over {0} uur|Over {0} uur",
+			"{0} dag geleden|{0} dagen geleden", "Over {0} dag|Over {0} dagen", "{0} dag geleden|{0} dgn geleden", "Over {0} dag|Over {0} dgn",
+			"{0} week geleden|{0} weken geleden", "Over {0} week|Over {0} weken", "{0} week geleden|{0} weken geleden", "Over {0} week|Over {0} weken"
+		},
+		{ "pt", "0,1", "Hoje|Ontem|Amanh\u00e3|Anteontem|Depois de amanh\u00e3",
+			"H\u00e1 {0} segundo|H\u00e1 {0} segundos", "Em {0} segundo|Em {0} segundos", "H\u00e1 {0} seg.|H\u00e1 {0} seg.", "Em {0} seg.|Em {0} seg.",
+			"H\u00e1 {0} minuto|H\u00e1 {0} minutos", "Em {0} minuto|Em {0} minutos", "H\u00e1 {0} min.|H\u00e1 {0} min.", "Em {0} min.|Em {0} min.",
+			"H\u00e1 {0} hora|H\u00e1 {0} horas", "Em {0} hora|Em {0} horas", "H\u00e1 {0} h|H\u00e1 {0} h", "Em {0} h|Em {0} h",
+			"H\u00e1 {0} dia|H\u00e1 {0} dias", "Em {0} dia|Em {0} dias", "H\u00e1 {0} dia|H\u00e1 {0} dias", "Em {0} dia|Em {0} dias",
+			"H\u00e1 {0} semana|H\u00e1 {0} semanas", "Em {0} semana|Em {0} semanas", "H\u00e1 {0} sem.|H\u00e1 {0} sem.", "Em {0} sem.|Em {0} sem."
+		},
+		{ "pt_PT", "1", "Hoje|Ontem|Amanh\u00e3|Anteontem|Depois de amanh\u00e3",
+			"H\u00e1 {0} segundo|H\u00e1 {0} segundos", "Dentro de {0} segundo|Dentro de {0} segundos", "H\u00e1 {0} s|H\u00e1 {0} s", "Dentro de {0} s|Dentro de {0} s",
+			"H\u00e1 {0} minuto|H\u00e1 {0} minutos", "Dentro de {0} minuto|Dentro de {0} minutos", "H\u00e1 {0} min|H\u00e1 {0} min", "Dentro de {0} min|Dentro de {0} min",
+			"H\u00e1 {0} hora|H\u00e1 {0} horas", "Dentro de {0} hora|Dentro de {0} horas", "H\u00e1 {0} h|H\u00e1 {0} h", "Dentro de {0} h|Dentro de {0} h",
+			"H\u00e1 {0} dia|H\u00e1 {0} dias", "Dentro de {0} dia|Dentro de {0} dias", "H\u00e1 {0} dia|H\u00e1 {0} dias", "Dentro de {0} dia|Dentro de {0} dias",
+			"H\u00e1 {0} semana|H\u00e1 {0} semanas", "Dentro de {0} semana|Dentro de {0} semanas", "H\u00e1 {0} sem.|H\u00e1 {0} sem.", "Dentro de {0} sem.|Dentro de {0} sem."
+		}
+	};
+
+	private static final HashMap<String, RelativeTimeStrings> languages = new HashMap<String, RelativeTimeStrings>();
+
+	static {
+		for (String[] row : DATA) {
+			languages.put(row[0], new RelativeTimeStrings(row));
+		}
+	}
+
+	private final boolean zeroSingular;
+	private final String[] days;
+	// [unit * 4 + (abbrev ? 2 : 0) + (past ? 0 : 1)] -> singular, plural
+	private final String[][] units;
+
+	private RelativeTimeStrings(String[] row) {
+		zeroSingular = row[1].startsWith("0");
+		days = row[2].split("\\|", -1);
+		units = new String[row.length - 3][];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = row[i + 3].split("\\|");
+		}
+	}
+
+	/**
+	 * Returns the strings for the language of the locale. Other languages get
+	 * the English strings, the numbers are still formatted for the locale.
+	 */
+	static RelativeTimeStrings forLocale(Locale locale) {
+		RelativeTimeStrings ret = languages.get(locale.getLanguage() + "_" + locale.getCountry());
+		if (ret == null) {
+			ret = languages.get(locale.getLanguage());
+		}
+		if (ret == null) {
+			ret = languages.get("en");
+		}
+		return ret;
+	}
+
+	String format(long count, int unit, boolean abbrev, boolean past, Locale locale) {
+		String[] forms = units[unit * 4 + (abbrev ? 2 : 0) + (past ? 0 : 1)];
+		boolean singular = count == 1 || (count == 0 && zeroSingular);
+		String number = count < 1000 ? Long.toString(count)
+				: NumberFormat.getIntegerInstance(locale).format(count);
+		return forms[singular ? 0 : 1].replace("{0}", number);
+	}
+
+	/**
+	 * Returns "Today" for distance 0, "Yesterday" or "Tomorrow" for 1 and the
+	 * word for 2 days or null if the language has none.
+	 */
+	String day(int distance, boolean past) {
+		String ret = distance == 0 ? days[0] : days[distance * 2 - (past ? 1 : 0)];
+		return ret.length() == 0 ? null : ret;
+	}
+}
@@ -0,0 +1,214 @@
+package de.amberhome.locale;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Index of the character trigrams of a set of texts for finding the most
+ * similar text. The similarity is the Dice coefficient of the trigram sets
+ * (2 * common / (count1 + count2)), 1.0 means the same trigrams.
+ *
+ * The texts are compared case insensitive with collapsed whitespace and
+ * padded like "  save file " so the start and end of a text count more.
+ *
+ * search() reuses its scratch arrays and is not thread safe.
+ */
+final class TrigramIndex {
+
+	final String[] texts;
+	// Number of distinct trigrams of each text
+	private final int[] gramCounts;
+
+	// Open addressing table trigram -> id, 0 marks an empty slot
+	private final long[] tableKeys;
+	private final int[] tableIds;
+
+	// Postings of trigram id g are postings[offsets[g]] to postings[offsets[g + 1] - 1]
+	private final int[] offsets;
+	private final int[] postings;
+
+	// Scratch arrays of search(), common is all 0 between calls
+	private final int[] common;
+	private final int[] touched;
+
+	private TrigramIndex(String[] texts, int[] gramCounts, long[] tableKeys, int[] tableIds,
+			int[] offsets, int[] postings) {
+		this.texts = texts;
+		this.gramCounts = gramCounts;
+		this.tableKeys = tableKeys;
+		this.tableIds = tableIds;
+		this.offsets = offsets;
+		this.postings = postings;
+		common = new int[texts.length];
+		touched = new int[texts.length];
+	}
+
+	static TrigramIndex build(String[] texts) {
+		long[][] grams = new long[texts.length][];
+		int[] gramCounts = new int[texts.length];
+		int total = 0;
+		for (int i = 0; i < texts.length; i++) {
+			grams[i] = trigrams(texts[i]);
+			gramCounts[i] = grams[i].length;
+			total += grams[i].length;
+		}
+
+		int capacity = Integer.highestOneBit(Math.max(16, total * 2 - 1)) << 1;
+		long[] tableKeys = new long[capacity];
+		int[] tableIds = new int[capacity];
+
+		// Assign ids and count the postings of each trigram
+		int[] counts = new int[Math.max(16, total)];
+		int ids = 0;
+		for (long[] textGrams : grams) {
+			for (long gram : textGrams) {
+				int slot = slot(tableKeys, gram);
+				if (tableKeys[slot] == 0) {
+					tableKeys[slot] = gram;
+					tableIds[slot] = ids++;
+				}
+				counts[tableIds[slot]]++;
+			}
+		}
+
+		int[] offsets = new int[ids + 1];
+		for (int g = 0; g < ids; g++) {
+			offsets[g + 1] = offsets[g] + counts[g];
+		}
+		int[] fill = new int[ids];
+		int[] postings = new int[total];
+		for (int i = 0; i < grams.length; i++) {
+			for (long gram : grams[i]) {
+				int id = tableIds[slot(tableKeys, gram)];
+				postings[offsets[id] + fill[id]++] = i;
+			}
+		}
+
+		return new TrigramIndex(texts, gramCounts, tableKeys, tableIds, offsets, postings);
+	}
+
+	private static int slot(long[] keys, long gram) {
+		int mask = keys.length - 1;
+		long h = gram * 0x9E3779B97F4A7C15L;
+		int slot = (int) (h >>> 32) & mask;
+		while (keys[slot] != 0 && keys[slot] != gram) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the sorted distinct trigrams of the text. Each trigram is packed
+	 * into a long (3 x 16 bits, never 0 because of the + 1).
+	 */
+	static long[] trigrams(String text) {
+		String normalized = normalize(text);
+		int count = normalized.length() - 2;
+		if (count <= 0) {
+			return new long[0];
+		}
+		long[] ret = new long[count];
+		for (int i = 0; i < count; i++) {
+			ret[i] = ((long) normalized.charAt(i) << 32 | (long) normalized.charAt(i + 1) << 16
+					| normalized.charAt(i + 2)) + 1;
+		}
+		Arrays.sort(ret);
+		int distinct = 0;
+		for (int i = 0; i < ret.length; i++) {
+			if (i == 0 || ret[i] != ret[i - 1]) {
+				ret[distinct++] = ret[i];
+			}
+		}
+		return distinct == ret.length ? ret : Arrays.copyOf(ret, distinct);
+	}
+
+	private static String normalize(String text) {
+		StringBuilder sb = new StringBuilder(text.length() + 3);
+		sb.append("  ");
+		boolean space = true;
+		String lower = text.toLowerCase(Locale.ROOT);
+		for (int i = 0; i < lower.length(); i++) {
+			char c = lower.charAt(i);
+			if (Character.isWhitespace(c)) {
+				if (!space) {
+					sb.append(' ');
+					space = true;
+				}
+			} else {
+				sb.append(c);
+				space = false;
+			}
+		}
+		if (!space) {
+			sb.append(' ');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the indexes of the texts with a similarity of at least
+	 * minSimilarity, best match first, at most maxCount. similarities
+	 * receives the similarity of each result and must be at least maxCount
+	 * long.
+	 */
+	int[] search(String text, double minSimilarity, int maxCount, double[] similarities) {
+		long[] grams = trigrams(text);
+		if (grams.length == 0 || maxCount <= 0) {
+			return new int[0];
+		}
+
+		int touchedCount = 0;
+		for (long gram : grams) {
+			int slot = slot(tableKeys, gram);
+			if (tableKeys[slot] == 0) {
+				continue;
+			}
+			int id = tableIds[slot];
+			for (int p = offsets[id]; p < offsets[id + 1]; p++) {
+				int i = postings[p];
+				if (common[i]++ == 0) {
+					touched[touchedCount++] = i;
+				}
+			}
+		}
+
+		// Keep the best maxCount results, sorted by similarity
+		int[] best = new int[maxCount];
+		int bestCount = 0;
+		for (int t = 0; t < touchedCount; t++) {
+			int i = touched[t];
+			double similarity = 2.0 * common[i] / (grams.length + gramCounts[i]);
+			if (similarity < minSimilarity) {
+				continue;
+			}
+			int pos = bestCount;
+			while (pos > 0 && better(similarity, i, similarities[pos - 1], best[pos - 1], text)) {
+				pos--;
+			}
+			if (pos >= maxCount) {
+				continue;
+			}
+			int move = Math.min(bestCount, maxCount - 1) - pos;
+			System.arraycopy(best, pos, best, pos + 1, move);
+			System.arraycopy(similarities, pos, similarities, pos + 1, move);
+			best[pos] = i;
+			similarities[pos] = similarity;
+			bestCount = Math.min(bestCount + 1, maxCount);
+		}
+
+		for (int t = 0; t < touchedCount; t++) {
+			common[touched[t]] = 0;
+		}
+		return bestCount == maxCount ? best : Arrays.copyOf(best, bestCount);
+	}
+
+	// Higher similarity first, then the text with the closer length
+	private boolean better(double similarity, int index, double otherSimilarity, int other,
+			String text) {
+		if (similarity != otherSimilarity) {
+			return similarity > otherSimilarity;
+		}
+		return Math.abs(texts[index].length() - text.length())
+				< Math.abs(texts[other].length() - text.length());
+	}
+}
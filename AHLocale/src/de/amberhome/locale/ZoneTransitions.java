@@ -0,0 +1,150 @@
+package de.amberhome.locale;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Precomputed UTC offset and daylight transitions of a timezone for a window
+ * of years. Lookups inside the window are a binary search on primitive
+ * arrays, outside of the window the platform TimeZone rules are used.
+ *
+ * The transitions are found by sampling the offset and daylight flag once per
+ * day and searching the exact instant of each change, so changes that are
+ * reverted within the same day are not detected.
+ */
+final class ZoneTransitions {
+
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	final TimeZone tz;
+	final long windowStart;
+	final long windowEnd;
+	// times[i] is the start of the period with offsets[i] and dst[i]
+	final long[] times;
+	final int[] offsets;
+	final boolean[] dst;
+
+	private ZoneTransitions(TimeZone tz, long windowStart, long windowEnd,
+			long[] times, int[] offsets, boolean[] dst) {
+		this.tz = tz;
+		this.windowStart = windowStart;
+		this.windowEnd = windowEnd;
+		this.times = times;
+		this.offsets = offsets;
+		this.dst = dst;
+	}
+
+	/**
+	 * Calculates the transitions from January 1st of startYear up to January
+	 * 1st of endYear (UTC). A change of the offset or of the daylight flag
+	 * starts a new period, some zones switch between daylight and standard
+	 * time without changing the total offset.
+	 */
+	static ZoneTransitions build(TimeZone zone, int startYear, int endYear) {
+		TimeZone tz = (TimeZone) zone.clone();
+		Date date = new Date();
+		long start = yearStart(startYear);
+		long end = yearStart(endYear);
+
+		int capacity = 16;
+		long[] times = new long[capacity];
+		long[] states = new long[capacity];
+		int count = 0;
+
+		long current = state(tz, date, start);
+		times[count] = start;
+		states[count] = current;
+		count++;
+
+		for (long t = start; t < end; t += DAY) {
+			long next = Math.min(t + DAY, end);
+			if (state(tz, date, next) == current) {
+				continue;
+			}
+
+			// Search the first millisecond with the new offset or daylight flag
+			long lo = t;
+			long hi = next;
+			while (hi - lo > 1) {
+				long mid = (lo + hi) >>> 1;
+				if (state(tz, date, mid) == current) {
+					lo = mid;
+				} else {
+					hi = mid;
+				}
+			}
+
+			if (count == capacity) {
+				capacity *= 2;
+				long[] newTimes = new long[capacity];
+				long[] newStates = new long[capacity];
+				System.arraycopy(times, 0, newTimes, 0, count);
+				System.arraycopy(states, 0, newStates, 0, count);
+				times = newTimes;
+				states = newStates;
+			}
+			current = state(tz, date, hi);
+			times[count] = hi;
+			states[count] = current;
+			count++;
+			t = hi - DAY;
+		}
+
+		long[] finalTimes = new long[count];
+		int[] offsets = new int[count];
+		boolean[] dst = new boolean[count];
+		System.arraycopy(times, 0, finalTimes, 0, count);
+		for (int i = 0; i < count; i++) {
+			offsets[i] = (int) (states[i] >> 1);
+			dst[i] = (states[i] & 1) != 0;
+		}
+
+		return new ZoneTransitions(tz, start, end, finalTimes, offsets, dst);
+	}
+
+	// Offset and daylight flag packed into one value for comparisons
+	private static long state(TimeZone tz, Date date, long time) {
+		date.setTime(time);
+		return ((long) tz.getOffset(time) << 1) | (tz.inDaylightTime(date) ? 1 : 0);
+	}
+
+	private static long yearStart(int year) {
+		GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		cal.clear();
+		cal.set(year, 0, 1);
+		return cal.getTimeInMillis();
+	}
+
+	/**
+	 * Returns the index of the period that contains time or -1 if time is
+	 * outside of the window.
+	 */
+	int indexOf(long time) {
+		if (time < windowStart || time >= windowEnd) {
+			return -1;
+		}
+
+		int lo = 0;
+		int hi = times.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (times[mid] <= time) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	int getOffset(long time) {
+		int i = indexOf(time);
+		return i >= 0 ? offsets[i] : tz.getOffset(time);
+	}
+
+	boolean inDaylightTime(long time) {
+		int i = indexOf(time);
+		return i >= 0 ? dst[i] : tz.inDaylightTime(new Date(time));
+	}
+}
@@ -0,0 +1,125 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Converts small and large files from de_DE to en_US and compares the result
+ * with the expected text.
+ */
+public class AHLocaleConverterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String dir;
+	private AHLocaleConverter converter;
+
+	@Before
+	public void initialize() {
+		dir = folder.getRoot().getAbsolutePath();
+		converter = new AHLocaleConverter();
+		converter.Initialize(null, "conv", ";");
+		converter.setThreads(4);
+	}
+
+	private static AHNumeric number(String language, String country) {
+		AHLocale locale = new AHLocale();
+		locale.Initialize3(language, country);
+		AHNumeric ret = new AHNumeric();
+		ret.InitializeNumber2(locale);
+		ret.setMaximumFractionDigits(10);
+		return ret;
+	}
+
+	private static AHDateTime date(String language, String country, String pattern) {
+		AHLocale locale = new AHLocale();
+		locale.Initialize3(language, country);
+		AHDateTime ret = new AHDateTime();
+		ret.Initialize2(locale);
+		ret.setPattern(pattern);
+		return ret;
+	}
+
+	private String convert(byte[] source) throws IOException {
+		Files.write(new File(dir, "in.csv").toPath(), source);
+		converter.Convert(dir, "in.csv", dir, "out.csv");
+		return new String(Files.readAllBytes(new File(dir, "out.csv").toPath()), "UTF-8");
+	}
+
+	@Test
+	public void convertsNumbersExactly() throws IOException {
+		converter.AddNumberColumn(0, number("de", "DE"), number("en", "US"));
+		String out = convert(("1.234,56\n9007199254740993\n12.345.678.901.234.567,25\n")
+				.getBytes("UTF-8"));
+		assertEquals("1,234.56\n9,007,199,254,740,993\n12,345,678,901,234,567.25\n", out);
+		assertEquals(0, converter.getFailedValues());
+	}
+
+	@Test
+	public void rejectsMisplacedGroupingSeparators() throws IOException {
+		converter.AddNumberColumn(0, number("de", "DE"), number("en", "US"));
+		String source = "1.5\n12.34\n1234.567\n1.234.567\n";
+		String out = convert(source.getBytes("UTF-8"));
+		assertEquals("1.5\n12.34\n1234.567\n1,234,567\n", out);
+		assertEquals(3, converter.getFailedValues());
+	}
+
+	@Test
+	public void rejectsInvalidDates() throws IOException {
+		converter.AddDateColumn(0, date("de", "DE", "dd.MM.yyyy"), date("en", "US", "MM/dd/yyyy"));
+		String out = convert("17.10.2026\n31.02.2020\n".getBytes("UTF-8"));
+		assertEquals("10/17/2026\n31.02.2020\n", out);
+		assertEquals(1, converter.getFailedValues());
+	}
+
+	@Test
+	public void keepsQuotedFieldsAcrossChunks() throws IOException {
+		converter.setHeaderLines(1);
+		converter.AddNumberColumn(1, number("de", "DE"), number("en", "US"));
+		NumberFormat de = NumberFormat.getNumberInstance(Locale.GERMANY);
+		NumberFormat us = NumberFormat.getNumberInstance(Locale.US);
+
+		StringBuilder source = new StringBuilder("Text;Value\r\n");
+		StringBuilder expected = new StringBuilder(source);
+		int rows = 40000;
+		for (int i = 0; i < rows; i++) {
+			// The quoted text contains separators, quotes and line breaks
+			String text = "\"row " + i + ";\r\n\"\"quoted\"\"\n" + "x" + (i % 17) + "\"";
+			double value = i * 1000 + 0.25;
+			source.append(text).append(';').append(de.format(value)).append("\r\n");
+			expected.append(text).append(';').append(us.format(value)).append("\r\n");
+		}
+		assertTrue(source.length() > 1024 * 1024);
+
+		assertEquals(expected.toString(), convert(source.toString().getBytes("UTF-8")));
+		assertEquals(0, converter.getFailedValues());
+	}
+
+	@Test
+	public void reportsMalformedInput() throws IOException {
+		converter.AddNumberColumn(0, number("de", "DE"), number("en", "US"));
+		byte[] source = { '1', '\n', '2', '\n', (byte) 0xC3, '(', '\n' };
+		try {
+			convert(source);
+			fail("Malformed input was accepted");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith("row 3"));
+		}
+		assertFalse(new File(dir, "out.csv").exists());
+		assertFalse(new File(dir, "out.csv.tmp").exists());
+	}
+}
@@ -0,0 +1,69 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import anywheresoftware.b4a.objects.collections.List;
+
+/**
+ * Tests the matching of preference lists with AHLocaleNegotiator.
+ */
+public class AHLocaleNegotiatorTest {
+
+	private AHLocaleNegotiator negotiator;
+
+	@Before
+	public void initialize() {
+		List supported = new List();
+		supported.Initialize();
+		supported.Add("de_AT");
+		supported.Add("de");
+		supported.Add("en-US");
+		supported.Add("fr_FR");
+		supported.Add("zh_TW");
+		negotiator = new AHLocaleNegotiator();
+		negotiator.Initialize(supported, "en");
+	}
+
+	@Test
+	public void prefersExactMatches() {
+		assertEquals("de_AT", negotiator.Negotiate("de-AT,de;q=0.9"));
+		assertEquals("en-US", negotiator.Negotiate("en-us"));
+		assertEquals("zh_TW", negotiator.Negotiate("zh-Hant-TW"));
+	}
+
+	@Test
+	public void fallsBackToLanguage() {
+		// The plain language entry wins over de_AT
+		assertEquals("de", negotiator.Negotiate("de-CH"));
+		assertEquals("fr_FR", negotiator.Negotiate("fr-CA"));
+		assertEquals("de", negotiator.Negotiate2("DE", "ch"));
+	}
+
+	@Test
+	public void followsWeights() {
+		assertEquals("en-US", negotiator.Negotiate("fr;q=0.5,en;q=0.9"));
+		assertEquals("fr_FR", negotiator.Negotiate("it,fr;q=0.5,en;q=0.4"));
+		// Equal weights keep their order
+		assertEquals("fr_FR", negotiator.Negotiate("fr,de"));
+	}
+
+	@Test
+	public void returnsDefaultWithoutMatch() {
+		assertEquals("en", negotiator.Negotiate("it,es"));
+		assertEquals("en", negotiator.Negotiate("*"));
+		assertEquals("en", negotiator.Negotiate("fr;q=0,de;q=abc"));
+		assertEquals("en", negotiator.Negotiate(""));
+		assertEquals("en", negotiator.Negotiate2("it", ""));
+	}
+
+	@Test
+	public void cachedResultsStayTheSame() {
+		for (int i = 0; i < 200; i++) {
+			assertEquals("de", negotiator.Negotiate("de-CH"));
+			negotiator.Negotiate("it-" + i + ",fr");
+		}
+	}
+}
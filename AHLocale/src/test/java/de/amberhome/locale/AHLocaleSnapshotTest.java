@@ -0,0 +1,72 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import anywheresoftware.b4a.objects.collections.List;
+
+/**
+ * Writes and loads snapshot files.
+ */
+public class AHLocaleSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static List locales() {
+		AHLocale locale = new AHLocale();
+		locale.Initialize3("de", "DE");
+		List ret = new List();
+		ret.Initialize();
+		ret.Add(locale);
+		return ret;
+	}
+
+	@Test
+	public void loadsWhatWasWritten() throws IOException {
+		String dir = folder.getRoot().getAbsolutePath();
+		AHLocaleSnapshot snapshot = new AHLocaleSnapshot();
+		snapshot.Write(dir, "locales.dat", locales());
+		assertTrue(snapshot.Load(dir, "locales.dat"));
+		assertFalse(snapshot.Load(dir, "missing.dat"));
+	}
+
+	@Test
+	public void ignoresSnapshotsOfOtherPlatforms() throws IOException {
+		String dir = folder.getRoot().getAbsolutePath();
+		AHLocaleSnapshot snapshot = new AHLocaleSnapshot();
+		snapshot.Write(dir, "locales.dat", locales());
+
+		// The platform version follows the magic, the version and its length
+		File file = new File(dir, "locales.dat");
+		byte[] data = Files.readAllBytes(file.toPath());
+		data[12] = (byte) (data[12] == 'x' ? 'y' : 'x');
+		Files.write(file.toPath(), data);
+
+		assertFalse(snapshot.Load(dir, "locales.dat"));
+	}
+
+	@Test
+	public void removesTemporaryFileOnFailure() throws IOException {
+		String dir = folder.getRoot().getAbsolutePath();
+		List locales = locales();
+		locales.Add("not a locale");
+		try {
+			new AHLocaleSnapshot().Write(dir, "locales.dat", locales);
+			fail("Invalid list was written");
+		} catch (ClassCastException e) {
+			// expected
+		}
+		assertEquals(0, folder.getRoot().list().length);
+	}
+}
@@ -0,0 +1,101 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.GregorianCalendar;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import anywheresoftware.b4a.objects.collections.List;
+
+/**
+ * Tests the batch conversions of AHTimezone against GregorianCalendar, the
+ * handling of the default zone and the catalog search.
+ */
+public class AHTimezoneTest {
+
+	private static final String ID = "America/New_York";
+	// Larger than the threshold for the parallel conversion
+	private static final int COUNT = 200000;
+
+	private static long[] ticks() {
+		long[] ret = new long[COUNT];
+		long start = -2000000000000L;
+		long step = 4000000000000L / COUNT + 7;
+		for (int i = 0; i < COUNT; i++) {
+			ret[i] = start + i * step;
+		}
+		return ret;
+	}
+
+	@Test
+	public void localFieldsMatchCalendar() {
+		AHTimezone zone = new AHTimezone();
+		zone.Initialize2(ID);
+		long[] ticks = ticks();
+		int[] years = new int[COUNT];
+		int[] months = new int[COUNT];
+		int[] days = new int[COUNT];
+		int[] hours = new int[COUNT];
+		int[] minutes = new int[COUNT];
+		int[] epochDays = new int[COUNT];
+		zone.ToLocalFields(ticks, years, months, days, hours, minutes);
+		zone.ToLocalEpochDays(ticks, epochDays);
+
+		TimeZone tz = TimeZone.getTimeZone(ID);
+		GregorianCalendar cal = new GregorianCalendar(tz);
+		for (int i = 0; i < COUNT; i++) {
+			cal.setTimeInMillis(ticks[i]);
+			String at = "at " + ticks[i];
+			assertEquals(at, cal.get(GregorianCalendar.YEAR), years[i]);
+			assertEquals(at, cal.get(GregorianCalendar.MONTH) + 1, months[i]);
+			assertEquals(at, cal.get(GregorianCalendar.DAY_OF_MONTH), days[i]);
+			assertEquals(at, cal.get(GregorianCalendar.HOUR_OF_DAY), hours[i]);
+			assertEquals(at, cal.get(GregorianCalendar.MINUTE), minutes[i]);
+			assertEquals(at, Math.floor((ticks[i] + tz.getOffset(ticks[i])) / 86400000.0), epochDays[i], 0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsShortResultArrays() {
+		AHTimezone zone = new AHTimezone();
+		zone.Initialize2(ID);
+		zone.ToLocalFields(ticks(), null, new int[COUNT - 1], null, null, null);
+	}
+
+	@Test
+	public void keepsCustomDefaultZone() {
+		TimeZone saved = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(new SimpleTimeZone(3600000, "MyZone"));
+			AHTimezone zone = new AHTimezone();
+			zone.Initialize();
+			assertEquals("MyZone", zone.getID());
+			assertEquals(3600000L, zone.GetOffset(0));
+
+			TimeZone.setDefault(TimeZone.getTimeZone(ID));
+			assertEquals(ID, AHTimezone.defaultZone().getID());
+			assertEquals(true, AHTimezone.defaultZone() == AHTimezone.internZone(ID));
+		} finally {
+			TimeZone.setDefault(saved);
+		}
+	}
+
+	@Test
+	public void offsetSearchUsesCompiledZones() throws IOException {
+		Assume.assumeTrue(new File("/usr/share/zoneinfo/Asia/Tokyo").isFile());
+		// An ID the platform does not know, its rules come from the file
+		AHTimezone zone = new AHTimezone();
+		zone.LoadZoneFile("/usr/share/zoneinfo", "Asia/Tokyo", "Test/Tokyo");
+
+		List ids = zone.SearchIds2("Test/", 9 * 3600000);
+		assertEquals(1, ids.getSize());
+		assertEquals("Test/Tokyo", ids.Get(0));
+		assertEquals(0, zone.SearchIds2("Test/", 0).getSize());
+	}
+}
@@ -0,0 +1,125 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import anywheresoftware.b4a.objects.collections.Map;
+
+/**
+ * Tests the incremental writes and the similar key lookup of AHTranslator.
+ * Every written file is read back with File.ReadMap() and compared with the
+ * Map.
+ */
+public class AHTranslatorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String dir;
+	private AHTranslator translator;
+
+	@Before
+	public void initialize() throws IOException {
+		dir = folder.getRoot().getAbsolutePath();
+		translator = new AHTranslator();
+		translator.Initialize2(dir, "app", "de");
+	}
+
+	private Map read(String name) throws IOException {
+		return anywheresoftware.b4a.objects.streams.File.ReadMap(dir, name);
+	}
+
+	private static void assertSameEntries(Map expected, Map actual) {
+		assertEquals(expected.getSize(), actual.getSize());
+		for (int i = 0; i < expected.getSize(); i++) {
+			Object key = expected.GetKeyAt(i);
+			assertEquals(String.valueOf(key), expected.Get(key), actual.Get(key));
+		}
+	}
+
+	@Test
+	public void deltaAppendsNewEntries() throws IOException {
+		Map map = translator.getTranslationMap();
+		map.Put("Yes", "Ja");
+		translator.WriteTranslation(dir, "app");
+		map.Put("No", "Nein");
+		translator.GetText("Cancel");
+		translator.WriteTranslationDelta(dir, "app");
+
+		assertSameEntries(map, read("app_de.lng"));
+		assertSameEntries(translator.getMissingTranslationMap(), read("app_miss_de.lng"));
+	}
+
+	@Test
+	public void deltaRewritesAfterRemoveAndAdd() throws IOException {
+		Map map = translator.getTranslationMap();
+		map.Put("Yes", "Ja");
+		map.Put("No", "Nein");
+		translator.WriteTranslation(dir, "app");
+
+		// Same size as before, but "Cancel" is at an index that was written
+		map.Remove("Yes");
+		map.Put("Cancel", "Abbrechen");
+		translator.WriteTranslationDelta(dir, "app");
+
+		assertSameEntries(map, read("app_de.lng"));
+	}
+
+	@Test
+	public void deltaDoesNotAppendToUnwrittenFiles() throws IOException {
+		// A missing file of an earlier run
+		translator.GetText("Old");
+		translator.WriteTranslation(dir, "app");
+		translator.Initialize2(dir, "app", "de");
+
+		// The missing Map is empty, so nothing is written and no state is kept
+		translator.getTranslationMap().Put("Yes", "Ja");
+		translator.WriteTranslation(dir, "app");
+		translator.GetText("New");
+		translator.WriteTranslationDelta(dir, "app");
+
+		assertSameEntries(translator.getMissingTranslationMap(), read("app_miss_de.lng"));
+	}
+
+	@Test
+	public void leavesNoTemporaryFiles() throws IOException {
+		translator.getTranslationMap().Put("Yes", "Ja");
+		translator.WriteTranslation2(dir, "app", true);
+		assertFalse(new File(dir, "app_de.lng.tmp").exists());
+	}
+
+	@Test
+	public void findsSimilarKeys() {
+		Map map = translator.getTranslationMap();
+		map.Put("Save file", "Datei speichern");
+		map.Put("Open file", "Datei \u00f6ffnen");
+
+		assertEquals("Save file", translator.FindSimilarKey("save  file"));
+		assertEquals("", translator.FindSimilarKey("Print"));
+		assertEquals("save file!", translator.GetText("save file!"));
+
+		translator.setFuzzyFallback(true);
+		assertEquals("Datei speichern", translator.GetText("Save the file"));
+	}
+
+	@Test
+	public void updatesSimilarKeysWithTheMap() {
+		Map map = translator.getTranslationMap();
+		map.Put("Save file", "Datei speichern");
+		// More distinct texts than the cache holds
+		for (int i = 0; i < 1000; i++) {
+			translator.FindSimilarKey("Text " + i);
+		}
+		assertEquals("", translator.FindSimilarKey("Open files"));
+		map.Put("Open file", "Datei \u00f6ffnen");
+		assertEquals("Open file", translator.FindSimilarKey("Open files"));
+	}
+}
@@ -0,0 +1,97 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Compares compiled zones from the tzdata of the system with the zones of the
+ * JDK. The zones are chosen because their standard offset changed, so the
+ * current raw offset is wrong for older dates.
+ */
+public class CompiledTimeZoneTest {
+
+	private static final String ZONEINFO = "/usr/share/zoneinfo";
+	private static final String[] IDS = { "Europe/Moscow", "Europe/Istanbul", "Europe/Volgograd" };
+	private static final long HOUR = 3600000L;
+
+	private static CompiledTimeZone load(String id) throws IOException {
+		File file = new File(ZONEINFO, id);
+		Assume.assumeTrue("No tzdata in " + ZONEINFO, file.isFile());
+		return CompiledTimeZone.parse(id, Files.readAllBytes(file.toPath()));
+	}
+
+	private static long utc(int year) {
+		GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		cal.clear();
+		cal.set(year, 0, 1);
+		return cal.getTimeInMillis();
+	}
+
+	@Test
+	public void offsetsMatchPlatform() throws IOException {
+		for (String id : IDS) {
+			TimeZone expected = TimeZone.getTimeZone(id);
+			CompiledTimeZone zone = load(id);
+			for (long t = utc(2010); t < utc(2023); t += HOUR) {
+				assertEquals(id + " at " + t, expected.getOffset(t), zone.getOffset(t));
+			}
+		}
+	}
+
+	@Test
+	public void parseMatchesPlatform() throws IOException, ParseException {
+		for (String id : IDS) {
+			load(id);
+			AHTimezone zone = new AHTimezone();
+			zone.LoadZoneFile(ZONEINFO, id, id);
+			zone.Initialize2(id);
+			Assume.assumeTrue(zone.getIsCompiled());
+
+			AHDateTime dt = new AHDateTime();
+			dt.InitializeUS();
+			dt.setPattern("yyyy-MM-dd HH:mm");
+			dt.setTimeZone(zone);
+
+			SimpleDateFormat expected = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
+			expected.setTimeZone(TimeZone.getTimeZone(id));
+
+			for (long t = utc(2010); t < utc(2023); t += HOUR) {
+				String text = expected.format(t);
+				assertEquals(id + " at " + t, text, dt.Format(t));
+				// Times that exist twice resolve to the later one in both
+				assertEquals(id + " " + text, expected.parse(text).getTime(), dt.Parse(text));
+			}
+		}
+	}
+
+	@Test
+	public void parseResolvesGapsAndOverlaps() throws IOException, ParseException {
+		CompiledTimeZone zone = load("Europe/Berlin");
+		SimpleDateFormat expected = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
+		expected.setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+
+		AHDateTime dt = new AHDateTime();
+		dt.InitializeUS();
+		dt.setPattern("yyyy-MM-dd HH:mm");
+		AHTimezone tz = new AHTimezone();
+		tz.Initialize_internal(zone);
+		dt.setTimeZone(tz);
+
+		// Clocks go forward at 02:00 and back at 03:00
+		String[] texts = { "2021-03-28 02:30", "2021-10-31 02:30", "2021-10-31 03:30" };
+		for (String text : texts) {
+			assertEquals(text, expected.parse(text).getTime(), dt.Parse(text));
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.text.format.DateUtils;
+
+/**
+ * Checks JavaDateUtilsBackend against the regression snapshot in
+ * date_utils_snapshot.txt. The default locale and timezone are set for every
+ * line and restored after the test.
+ */
+public class JavaDateUtilsBackendTest {
+
+	private static final String ZONE = "Europe/Berlin";
+	private static final long MINUTE = 60000L;
+
+	private final JavaDateUtilsBackend backend = new JavaDateUtilsBackend();
+	private Locale savedLocale;
+	private TimeZone savedZone;
+	private SimpleDateFormat times;
+
+	@Before
+	public void setDefaults() {
+		savedLocale = Locale.getDefault();
+		savedZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone(ZONE));
+		Locale.setDefault(Locale.US);
+
+		times = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
+		times.setTimeZone(TimeZone.getTimeZone(ZONE));
+	}
+
+	@After
+	public void restoreDefaults() {
+		Locale.setDefault(savedLocale);
+		TimeZone.setDefault(savedZone);
+	}
+
+	@Test
+	public void matchesSnapshot() throws IOException, ParseException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				getClass().getResourceAsStream("date_utils_snapshot.txt"), "UTF-8"));
+		try {
+			int count = 0;
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\t");
+				String[] locale = fields[1].split("_");
+				Locale.setDefault(new Locale(locale[0], locale[1]));
+
+				String actual;
+				if (fields[0].equals("date")) {
+					actual = backend.formatDateTime(null, time(fields[2]), flags(fields[3]));
+				} else if (fields[0].equals("range")) {
+					actual = backend.formatDateRange(null, time(fields[2]), time(fields[3]),
+							flags(fields[4]));
+				} else {
+					actual = backend.getRelativeTimeSpanString(time(fields[2]), time(fields[3]),
+							resolution(fields[4]), flags(fields[5])).toString();
+				}
+				assertEquals(line, fields[fields.length - 1], normalize(actual));
+				count++;
+			}
+			assertEquals(true, count > 0);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void usesEnglishForOtherLanguages() throws ParseException {
+		Locale.setDefault(new Locale("ru", "RU"));
+		long now = time("2013-03-05 15:05");
+		assertEquals("5 minutes ago",
+				backend.getRelativeTimeSpanString(now - 5 * MINUTE, now, 0, 0).toString());
+		assertEquals("Yesterday",
+				backend.getRelativeTimeSpanString(now - 24 * 60 * MINUTE, now, DateUtils.DAY_IN_MILLIS, 0).toString());
+	}
+
+	private long time(String text) throws ParseException {
+		return times.parse(text).getTime();
+	}
+
+	private static int flags(String names) {
+		if (names.equals("0")) {
+			return 0;
+		}
+		int ret = 0;
+		for (String name : names.split("\\|")) {
+			try {
+				ret |= AHDateUtils.class.getField("FORMAT_" + name).getInt(null);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Unknown flag " + name);
+			}
+		}
+		return ret;
+	}
+
+	private static long resolution(String name) {
+		if (name.equals("0")) {
+			return 0;
+		}
+		try {
+			return DateUtils.class.getField(name + "_IN_MILLIS").getLong(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Unknown resolution " + name);
+		}
+	}
+
+	// Newer JDKs and CLDR versions use narrow and no-break spaces
+	private static String normalize(String text) {
+		return text.replace('\u202f', ' ').replace('\u2009', ' ').replace('\u00a0', ' ');
+	}
+}
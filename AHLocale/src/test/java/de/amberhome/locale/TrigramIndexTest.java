@@ -0,0 +1,46 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the similarity search of TrigramIndex.
+ */
+public class TrigramIndexTest {
+
+	private static final String[] TEXTS = { "Save file", "Save file as", "Open file", "Close",
+			"Delete all files" };
+
+	@Test
+	public void findsMostSimilarText() {
+		TrigramIndex index = TrigramIndex.build(TEXTS);
+		double[] similarities = new double[3];
+		int[] found = index.search("save  FILE", 0.5, 3, similarities);
+		assertEquals(0, found[0]);
+		assertEquals(1.0, similarities[0], 0);
+		assertEquals(1, found[1]);
+		assertEquals(true, similarities[1] < 1.0);
+	}
+
+	@Test
+	public void appliesMinSimilarity() {
+		TrigramIndex index = TrigramIndex.build(TEXTS);
+		assertEquals(0, index.search("Print", 0.3, 5, new double[5]).length);
+		assertEquals(0, index.search("", 0, 5, new double[5]).length);
+	}
+
+	@Test
+	public void repeatedSearchesGiveSameResults() {
+		// The scratch arrays must be cleared after every search
+		TrigramIndex index = TrigramIndex.build(TEXTS);
+		double[] first = new double[5];
+		int[] expected = index.search("Save file", 0.1, 5, first);
+		index.search("Open file", 0.1, 5, new double[5]);
+		index.search("Delete all", 0.1, 5, new double[5]);
+		double[] second = new double[5];
+		assertArrayEquals(expected, index.search("Save file", 0.1, 5, second));
+		assertArrayEquals(first, second, 0);
+	}
+}
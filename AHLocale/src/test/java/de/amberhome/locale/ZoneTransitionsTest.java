@@ -0,0 +1,64 @@
+package de.amberhome.locale;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * Compares the transition tables with the wrapped JDK zones for every
+ * available ID.
+ */
+public class ZoneTransitionsTest {
+
+	private static final int START_YEAR = 1990;
+	private static final int END_YEAR = 2030;
+	private static final long HOUR = 3600000L;
+	// Seven hours do not divide a day, so the samples move through the day
+	private static final long STEP = 7 * HOUR;
+
+	private static long utc(int year) {
+		GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		cal.clear();
+		cal.set(year, 0, 1);
+		return cal.getTimeInMillis();
+	}
+
+	@Test
+	public void matchesPlatformForAllZones() {
+		Date date = new Date();
+		for (String id : TimeZone.getAvailableIDs()) {
+			TimeZone expected = TimeZone.getTimeZone(id);
+			ZoneTransitions zone = ZoneTransitions.build(expected, START_YEAR, END_YEAR);
+			for (long t = utc(START_YEAR); t < utc(END_YEAR); t += STEP) {
+				date.setTime(t);
+				assertEquals(id + " offset at " + date, expected.getOffset(t), zone.getOffset(t));
+				assertEquals(id + " daylight at " + date, expected.inDaylightTime(date),
+						zone.inDaylightTime(t));
+			}
+		}
+	}
+
+	@Test
+	public void findsDaylightChangesWithSameOffset() {
+		// Istanbul stays on +03:00 but leaves daylight time on 2016-09-07
+		TimeZone expected = TimeZone.getTimeZone("Europe/Istanbul");
+		ZoneTransitions zone = ZoneTransitions.build(expected, 2016, 2018);
+		long t = utc(2017);
+		assertEquals(expected.getOffset(t), zone.getOffset(t));
+		assertEquals(expected.inDaylightTime(new Date(t)), zone.inDaylightTime(t));
+	}
+
+	@Test
+	public void usesPlatformOutsideOfWindow() {
+		TimeZone expected = TimeZone.getTimeZone("Europe/Berlin");
+		ZoneTransitions zone = ZoneTransitions.build(expected, 2000, 2001);
+		assertEquals(-1, zone.indexOf(utc(2001)));
+		long summer = utc(2010) + 180 * 24 * HOUR;
+		assertEquals(expected.getOffset(summer), zone.getOffset(summer));
+		assertEquals(true, zone.inDaylightTime(summer));
+	}
+}
@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * Stub, never instantiated off-device.
+ */
+public abstract class Context {
+}
@@ -0,0 +1,13 @@
+package android.text.format;
+
+import android.content.Context;
+
+/**
+ * Stub, like android.jar every method throws.
+ */
+public class DateFormat {
+
+	public static boolean is24HourFormat(Context context) {
+		throw new RuntimeException("Stub!");
+	}
+}
@@ -0,0 +1,71 @@
+package android.text.format;
+
+import java.util.Formatter;
+
+import android.content.Context;
+
+/**
+ * Stub, like android.jar every method throws. The constants have the values
+ * of the Android SDK.
+ */
+public class DateUtils {
+
+	public static final long SECOND_IN_MILLIS = 1000;
+	public static final long MINUTE_IN_MILLIS = SECOND_IN_MILLIS * 60;
+	public static final long HOUR_IN_MILLIS = MINUTE_IN_MILLIS * 60;
+	public static final long DAY_IN_MILLIS = HOUR_IN_MILLIS * 24;
+	public static final long WEEK_IN_MILLIS = DAY_IN_MILLIS * 7;
+	public static final long YEAR_IN_MILLIS = WEEK_IN_MILLIS * 52;
+
+	public static final int FORMAT_SHOW_TIME = 0x00001;
+	public static final int FORMAT_SHOW_WEEKDAY = 0x00002;
+	public static final int FORMAT_SHOW_YEAR = 0x00004;
+	public static final int FORMAT_NO_YEAR = 0x00008;
+	public static final int FORMAT_SHOW_DATE = 0x00010;
+	public static final int FORMAT_NO_MONTH_DAY = 0x00020;
+	public static final int FORMAT_12HOUR = 0x00040;
+	public static final int FORMAT_24HOUR = 0x00080;
+	public static final int FORMAT_CAP_AMPM = 0x00100;
+	public static final int FORMAT_NO_NOON = 0x00200;
+	public static final int FORMAT_CAP_NOON = 0x00400;
+	public static final int FORMAT_NO_MIDNIGHT = 0x00800;
+	public static final int FORMAT_CAP_MIDNIGHT = 0x01000;
+	public static final int FORMAT_UTC = 0x02000;
+	public static final int FORMAT_ABBREV_TIME = 0x04000;
+	public static final int FORMAT_ABBREV_WEEKDAY = 0x08000;
+	public static final int FORMAT_ABBREV_MONTH = 0x10000;
+	public static final int FORMAT_NUMERIC_DATE = 0x20000;
+	public static final int FORMAT_ABBREV_RELATIVE = 0x40000;
+	public static final int FORMAT_ABBREV_ALL = 0x80000;
+	public static final int FORMAT_CAP_NOON_MIDNIGHT = (FORMAT_CAP_NOON | FORMAT_CAP_MIDNIGHT);
+	public static final int FORMAT_NO_NOON_MIDNIGHT = (FORMAT_NO_NOON | FORMAT_NO_MIDNIGHT);
+
+	public static final int LENGTH_LONG = 10;
+	public static final int LENGTH_MEDIUM = 20;
+	public static final int LENGTH_SHORT = 30;
+	public static final int LENGTH_SHORTER = 40;
+	public static final int LENGTH_SHORTEST = 50;
+
+	public static String formatDateTime(Context context, long millis, int flags) {
+		throw new RuntimeException("Stub!");
+	}
+
+	public static Formatter formatDateRange(Context context, Formatter formatter,
+			long startMillis, long endMillis, int flags) {
+		throw new RuntimeException("Stub!");
+	}
+
+	public static String formatElapsedTime(long elapsedSeconds) {
+		throw new RuntimeException("Stub!");
+	}
+
+	public static CharSequence getRelativeTimeSpanString(long time, long now, long minResolution,
+			int flags) {
+		throw new RuntimeException("Stub!");
+	}
+
+	public static CharSequence getRelativeDateTimeString(Context c, long time, long minResolution,
+			long transitionResolution, int flags) {
+		throw new RuntimeException("Stub!");
+	}
+}
@@ -0,0 +1,59 @@
+package anywheresoftware.b4a;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Locale;
+
+import android.content.Context;
+
+/**
+ * Stub of the B4A runtime object. Events are not delivered.
+ */
+public class BA {
+
+	public static final Locale cul = Locale.US;
+
+	public Context context;
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface ShortName {
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Hide {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface Author {
+		String value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface Version {
+		float value();
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	public @interface Events {
+		String[] values();
+	}
+
+	public static void Log(String Message) {
+		System.out.println(Message);
+	}
+
+	public Object raiseEvent(Object sender, String event, Object... params) {
+		return null;
+	}
+
+	public void raiseEventFromDifferentThread(Object sender, Object container, int TaskId,
+			String event, boolean throwErrorIfMissingSub, Object[] params) {
+	}
+}
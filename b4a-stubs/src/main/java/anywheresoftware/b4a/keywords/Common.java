@@ -0,0 +1,11 @@
+package anywheresoftware.b4a.keywords;
+
+/**
+ * Stub of the B4A keywords.
+ */
+public class Common {
+
+	public static void Log(String Message) {
+		System.out.println(Message);
+	}
+}
@@ -0,0 +1,55 @@
+package anywheresoftware.b4a.objects.collections;
+
+import java.util.ArrayList;
+
+/**
+ * Stub of the B4A List, backed by an ArrayList.
+ */
+public class List {
+
+	private java.util.List<Object> list;
+
+	public void Initialize() {
+		list = new ArrayList<Object>();
+	}
+
+	public boolean IsInitialized() {
+		return list != null;
+	}
+
+	public void Add(Object Item) {
+		list.add(Item);
+	}
+
+	public void AddAll(List Other) {
+		list.addAll(Other.list);
+	}
+
+	public Object Get(int Index) {
+		return list.get(Index);
+	}
+
+	public void Set(int Index, Object Item) {
+		list.set(Index, Item);
+	}
+
+	public void RemoveAt(int Index) {
+		list.remove(Index);
+	}
+
+	public void Clear() {
+		list.clear();
+	}
+
+	public int getSize() {
+		return list.size();
+	}
+
+	public java.util.List<Object> getObject() {
+		return list;
+	}
+
+	public void setObject(java.util.List<Object> List) {
+		list = List;
+	}
+}
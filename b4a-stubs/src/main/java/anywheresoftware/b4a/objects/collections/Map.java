@@ -0,0 +1,66 @@
+package anywheresoftware.b4a.objects.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Stub of the B4A Map. Keeps the insertion order and, like the original,
+ * has constant time GetKeyAt() and GetValueAt().
+ */
+public class Map {
+
+	private HashMap<Object, Object> map;
+	private ArrayList<Object> keys;
+
+	public void Initialize() {
+		map = new HashMap<Object, Object>();
+		keys = new ArrayList<Object>();
+	}
+
+	public boolean IsInitialized() {
+		return map != null;
+	}
+
+	public Object Put(Object Key, Object Value) {
+		if (!map.containsKey(Key)) {
+			keys.add(Key);
+		}
+		return map.put(Key, Value);
+	}
+
+	public Object Get(Object Key) {
+		return map.get(Key);
+	}
+
+	public Object GetDefault(Object Key, Object Default) {
+		return map.containsKey(Key) ? map.get(Key) : Default;
+	}
+
+	public boolean ContainsKey(Object Key) {
+		return map.containsKey(Key);
+	}
+
+	public Object Remove(Object Key) {
+		if (map.containsKey(Key)) {
+			keys.remove(Key);
+		}
+		return map.remove(Key);
+	}
+
+	public Object GetKeyAt(int Index) {
+		return keys.get(Index);
+	}
+
+	public Object GetValueAt(int Index) {
+		return map.get(keys.get(Index));
+	}
+
+	public int getSize() {
+		return keys.size();
+	}
+
+	public void Clear() {
+		map.clear();
+		keys.clear();
+	}
+}
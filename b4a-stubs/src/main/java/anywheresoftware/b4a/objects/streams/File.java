@@ -0,0 +1,89 @@
+package anywheresoftware.b4a.objects.streams;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.Properties;
+
+import anywheresoftware.b4a.objects.collections.Map;
+
+/**
+ * Stub of the B4A File object. All folders are plain directories, DirAssets
+ * is the folder given by the system property b4a.assets (default "assets").
+ * Maps are read and written as properties files like on the device.
+ */
+public class File {
+
+	private static final String ASSETS = "AssetsDir";
+
+	public static String getDirAssets() {
+		return ASSETS;
+	}
+
+	private static java.io.File file(String Dir, String FileName) {
+		if (ASSETS.equals(Dir)) {
+			Dir = System.getProperty("b4a.assets", "assets");
+		}
+		return new java.io.File(Dir, FileName);
+	}
+
+	public static boolean Exists(String Dir, String FileName) {
+		return file(Dir, FileName).exists();
+	}
+
+	public static Map ReadMap(String Dir, String FileName) throws IOException {
+		Properties props = new Properties();
+		InputStream in = new FileInputStream(file(Dir, FileName));
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+
+		Map ret = new Map();
+		ret.Initialize();
+		for (Enumeration<?> e = props.propertyNames(); e.hasMoreElements();) {
+			String key = (String) e.nextElement();
+			ret.Put(key, props.getProperty(key));
+		}
+		return ret;
+	}
+
+	public static void WriteMap(String Dir, String FileName, Map Map) throws IOException {
+		Properties props = new Properties();
+		for (int i = 0; i < Map.getSize(); i++) {
+			props.setProperty(String.valueOf(Map.GetKeyAt(i)), String.valueOf(Map.GetValueAt(i)));
+		}
+		OutputStream out = new FileOutputStream(file(Dir, FileName));
+		try {
+			props.store(out, null);
+		} finally {
+			out.close();
+		}
+	}
+
+	public static InputStreamWrapper OpenInput(String Dir, String FileName) throws IOException {
+		InputStreamWrapper ret = new InputStreamWrapper();
+		ret.setObject(new FileInputStream(file(Dir, FileName)));
+		return ret;
+	}
+
+	public static class InputStreamWrapper {
+		private InputStream in;
+
+		public InputStream getObject() {
+			return in;
+		}
+
+		public void setObject(InputStream Stream) {
+			in = Stream;
+		}
+
+		public void Close() throws IOException {
+			in.close();
+		}
+	}
+}
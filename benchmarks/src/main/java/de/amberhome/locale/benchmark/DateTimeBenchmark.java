@@ -0,0 +1,72 @@
+package de.amberhome.locale.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.amberhome.locale.AHDateTime;
+import de.amberhome.locale.AHLocale;
+
+/**
+ * AHDateTime.Format() and Parse() for a fixed pattern.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeBenchmark {
+
+	@Param({ "en_US", "de_DE" })
+	public String locale;
+
+	@Param({ "yyyy-MM-dd HH:mm:ss", "EEEE, d. MMMM yyyy" })
+	public String pattern;
+
+	private AHDateTime dateTime;
+	private long ticks;
+	private String text;
+
+	@Setup
+	public void setup() {
+		dateTime = new AHDateTime();
+		dateTime.Initialize2(Locales.get(locale));
+		dateTime.setPattern(pattern);
+		ticks = 1704467100000L;
+		text = dateTime.Format(ticks);
+	}
+
+	@Benchmark
+	public String format() {
+		return dateTime.Format(ticks);
+	}
+
+	@Benchmark
+	public long parse() {
+		return dateTime.Parse(text);
+	}
+
+	static final class Locales {
+		static AHLocale get(String code) {
+			AHLocale ret = new AHLocale();
+			int i = code.indexOf('_');
+			if (i < 0) {
+				ret.Initialize2(code);
+			} else {
+				ret.Initialize3(code.substring(0, i), code.substring(i + 1));
+			}
+			return ret;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package de.amberhome.locale.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.amberhome.locale.AHLocale;
+
+/**
+ * AHLocale initialization and the property getters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocaleBenchmark {
+
+	@Param({ "en_US", "de_DE", "ja_JP" })
+	public String locale;
+
+	private AHLocale loc;
+	private String language;
+	private String country;
+
+	@Setup
+	public void setup() {
+		loc = DateTimeBenchmark.Locales.get(locale);
+		language = loc.getLanguage();
+		country = loc.getCountry();
+	}
+
+	@Benchmark
+	public AHLocale initialize3() {
+		AHLocale ret = new AHLocale();
+		ret.Initialize3(language, country);
+		return ret;
+	}
+
+	@Benchmark
+	public String displayName() {
+		return loc.getDisplayName();
+	}
+
+	@Benchmark
+	public String displayCountry() {
+		return loc.getDisplayCountry();
+	}
+
+	@Benchmark
+	public String currencySymbol() {
+		return loc.getCurrencySymbol();
+	}
+
+	@Benchmark
+	public String[] months() {
+		return loc.getMonths();
+	}
+
+	@Benchmark
+	public String[] weekDays() {
+		return loc.getWeekDays();
+	}
+
+	@Benchmark
+	public int firstDayOfWeek() {
+		return loc.getFirstDayOfWeek();
+	}
+}
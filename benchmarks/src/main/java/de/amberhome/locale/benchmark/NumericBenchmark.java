@@ -0,0 +1,62 @@
+package de.amberhome.locale.benchmark;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.amberhome.locale.AHNumeric;
+
+/**
+ * AHNumeric.Format() and Parse() for numbers and currencies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumericBenchmark {
+
+	@Param({ "en_US", "de_DE" })
+	public String locale;
+
+	@Param({ "number", "currency" })
+	public String style;
+
+	private AHNumeric numeric;
+	private double value;
+	private String text;
+
+	@Setup
+	public void setup() {
+		numeric = new AHNumeric();
+		if ("currency".equals(style)) {
+			numeric.InitializeCurrency2(DateTimeBenchmark.Locales.get(locale));
+		} else {
+			numeric.InitializeNumber2(DateTimeBenchmark.Locales.get(locale));
+		}
+		value = 1234567.891;
+		text = numeric.Format(value);
+	}
+
+	@Benchmark
+	public String format() {
+		return numeric.Format(value);
+	}
+
+	@Benchmark
+	public Number parse() throws ParseException {
+		return numeric.Parse(text);
+	}
+}
@@ -0,0 +1,66 @@
+package de.amberhome.locale.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.amberhome.locale.AHTimezone;
+
+/**
+ * AHTimeZone.GetOffset() inside and outside of the transition window.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimezoneBenchmark {
+
+	private static final int COUNT = 1024;
+
+	@Param({ "Europe/Berlin", "America/Santiago", "UTC" })
+	public String id;
+
+	private AHTimezone zone;
+	private long[] recent;
+	private long[] historic;
+	private int index;
+
+	@Setup
+	public void setup() {
+		zone = new AHTimezone();
+		zone.Initialize2(id);
+
+		long now = System.currentTimeMillis();
+		recent = new long[COUNT];
+		historic = new long[COUNT];
+		long step = 365L * 24 * 60 * 60 * 1000 / COUNT;
+		for (int i = 0; i < COUNT; i++) {
+			recent[i] = now - i * step;
+			historic[i] = 0L - i * step;
+		}
+	}
+
+	@Benchmark
+	public long getOffset() {
+		index = (index + 1) & (COUNT - 1);
+		return zone.GetOffset(recent[index]);
+	}
+
+	@Benchmark
+	public long getOffsetOutsideWindow() {
+		index = (index + 1) & (COUNT - 1);
+		return zone.GetOffset(historic[index]);
+	}
+}
@@ -0,0 +1,110 @@
+package de.amberhome.locale.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import anywheresoftware.b4a.objects.collections.List;
+import de.amberhome.locale.AHTranslator;
+
+/**
+ * AHTranslator lookups and loading of a generated language file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslatorBenchmark {
+
+	@Param({ "100", "5000" })
+	public int size;
+
+	private File dir;
+	private AHTranslator translator;
+	private String hit;
+	private String miss;
+	private String withParams;
+	private List params;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = File.createTempFile("ahlocale", "");
+		dir.delete();
+		dir.mkdirs();
+
+		Properties props = new Properties();
+		for (int i = 0; i < size; i++) {
+			props.setProperty("Text number " + i, "Text Nummer " + i);
+		}
+		props.setProperty("Hello {1}, you have {2} new messages",
+				"Hallo {1}, du hast {2} neue Nachrichten");
+		OutputStream out = new FileOutputStream(new File(dir, "bench_de.lng"));
+		try {
+			props.store(out, null);
+		} finally {
+			out.close();
+		}
+
+		translator = new AHTranslator();
+		translator.Initialize2(dir.getPath(), "bench", "de");
+		hit = "Text number " + size / 2;
+		miss = "Not translated";
+		withParams = "Hello {1}, you have {2} new messages";
+		params = new List();
+		params.Initialize();
+		params.Add("Markus");
+		params.Add(Integer.valueOf(3));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Benchmark
+	public String getTextHit() {
+		return translator.GetText(hit);
+	}
+
+	@Benchmark
+	public String getTextMiss() {
+		return translator.GetText(miss);
+	}
+
+	@Benchmark
+	public String getText2() {
+		return translator.GetText2(withParams, params);
+	}
+
+	@Benchmark
+	public AHTranslator initialize3() throws IOException {
+		AHTranslator t = new AHTranslator();
+		t.Initialize3(dir.getPath(), "bench", "de", "DE");
+		return t;
+	}
+}